@@ -0,0 +1,285 @@
+/**
+ * @author Michael Girard
+ */
+package com.github.michael_girard.scheduler;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Year;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class BusinessCalendar {
+    /*
+        BusinessCalendar knows when work happens: working hours for each day of
+        the week, holidays, and exceptions that give a particular date its own
+        hours. Times are counted in whole minutes.
+
+        The rules are compiled into a lookup table per year the first time that
+        year is asked about. The table has a bitset of working days and the
+        number of working minutes before each day, so working time between two
+        moments is a subtraction and adding working time is a binary search.
+
+        Configure the calendar before sharing it between threads; the compiled
+        tables themselves are safe to build and read from any thread.
+    */
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int MAX_YEARS_SEARCHED = 100;     //Give up if there's no working time in this many years
+
+    private final Map<DayOfWeek, int[]> workingHours = new EnumMap<>(DayOfWeek.class);
+    private final Set<LocalDate> holidays = new HashSet<>();
+    private final Map<LocalDate, int[]> exceptions = new HashMap<>();
+    private final Map<Integer, BusinessYear> years = new ConcurrentHashMap<>();
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    //Create a calendar working 9 to 5, Monday to Friday
+    public BusinessCalendar(){
+        this(LocalTime.of(9, 0), LocalTime.of(17, 0));
+    }
+
+    //Create a calendar working the supplied hours, Monday to Friday
+    public BusinessCalendar(LocalTime start, LocalTime end){
+        for (DayOfWeek day : DayOfWeek.values()){
+            if (day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY){
+                setWorkingHours(day, start, end);
+            }
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Rules">
+    public void setWorkingHours(DayOfWeek day, LocalTime start, LocalTime end){
+        workingHours.put(day, toMinutes(start, end));
+        years.clear();
+    }
+
+    public void setNonWorkingDay(DayOfWeek day){
+        workingHours.remove(day);
+        years.clear();
+    }
+
+    public void addHoliday(LocalDate date){
+        holidays.add(date);
+        years.clear();
+    }
+
+    public void removeHoliday(LocalDate date){
+        holidays.remove(date);
+        years.clear();
+    }
+
+    /*
+        addException gives a date its own working hours, overriding both the
+            day of the week and any holiday. Pass null times to make the date
+            a non-working day.
+    */
+    public void addException(LocalDate date, LocalTime start, LocalTime end){
+        exceptions.put(date, (start == null || end == null) ? new int[]{0, 0} : toMinutes(start, end));
+        years.clear();
+    }
+
+    public void removeException(LocalDate date){
+        exceptions.remove(date);
+        years.clear();
+    }
+
+    private static int[] toMinutes(LocalTime start, LocalTime end){
+        int startMinute = start.getHour() * 60 + start.getMinute();
+        int endMinute = (end.equals(LocalTime.MAX) ? MINUTES_PER_DAY : end.getHour() * 60 + end.getMinute());
+        if (endMinute < startMinute){
+            throw new IllegalArgumentException("Working hours can't end before they start.");
+        }
+        return new int[]{startMinute, endMinute};
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Queries">
+    public boolean isWorkingDay(LocalDate date){
+        return yearOf(date.getYear()).workingDays.get(date.getDayOfYear() - 1);
+    }
+
+    /*
+        getWorkingMinutes returns the number of working minutes in a date
+    */
+    public int getWorkingMinutes(LocalDate date){
+        BusinessYear year = yearOf(date.getYear());
+        int day = date.getDayOfYear() - 1;
+        return year.dayEnd[day] - year.dayStart[day];
+    }
+
+    /*
+        workingMinutesBetween counts the working minutes from one moment to
+            another. It's negative if the second moment comes first.
+    */
+    public long workingMinutesBetween(LocalDateTime from, LocalDateTime to){
+        if (to.isBefore(from)) return -workingMinutesBetween(to, from);
+        long minutes = yearOf(to.getYear()).minutesBefore(to) - yearOf(from.getYear()).minutesBefore(from);
+        for (int year = from.getYear(); year < to.getYear(); year++){
+            minutes += yearOf(year).totalMinutes();
+        }
+        return minutes;
+    }
+
+    /*
+        addWorkingMinutes finds the moment a number of working minutes after the
+            start. Work that finishes exactly at the end of a day finishes then,
+            rather than at the start of the next working day.
+    */
+    public LocalDateTime addWorkingMinutes(LocalDateTime start, long minutes){
+        if (minutes < 0){
+            throw new IllegalArgumentException("Can't add a negative amount of working time.");
+        }
+        if (minutes == 0) return start;
+
+        int yearNumber = start.getYear();
+        long target = yearOf(yearNumber).minutesBefore(start) + minutes;
+        for (int searched = 0; searched < MAX_YEARS_SEARCHED; searched++, yearNumber++){
+            BusinessYear year = yearOf(yearNumber);
+            if (target <= year.totalMinutes()){
+                return year.timeAt(target);
+            }
+            target -= year.totalMinutes();
+        }
+        throw new IllegalStateException("No working time found within " + MAX_YEARS_SEARCHED + " years.");
+    }
+
+    public LocalDateTime addWorkingHours(LocalDateTime start, long hours){
+        return addWorkingMinutes(start, hours * 60);
+    }
+
+    /*
+        nextWorkingTime returns the moment itself if it's during working hours,
+            otherwise the start of the next working period.
+    */
+    public LocalDateTime nextWorkingTime(LocalDateTime moment){
+        BusinessYear year = yearOf(moment.getYear());
+        int day = moment.getDayOfYear() - 1;
+        int minute = moment.getHour() * 60 + moment.getMinute();
+        if (year.workingDays.get(day)){
+            if (minute < year.dayStart[day]) return year.startOf(day);
+            if (minute < year.dayEnd[day]) return moment;
+        }
+
+        for (int searched = 0; searched < MAX_YEARS_SEARCHED; searched++){
+            int next = year.workingDays.nextSetBit(day + 1);
+            if (next >= 0) return year.startOf(next);
+            year = yearOf(year.year + 1);
+            day = -1;
+        }
+        throw new IllegalStateException("No working time found within " + MAX_YEARS_SEARCHED + " years.");
+    }
+
+    /*
+        bookedWorkingMinutes adds up the working time covered by the entries
+            starting between the first and last dates, inclusive. An entry
+            that ends before it starts is taken to run past midnight.
+    */
+    public long bookedWorkingMinutes(Collection<? extends ScheduleInfo> entries, LocalDate first, LocalDate last){
+        long minutes = 0;
+        for (ScheduleInfo entry : entries){
+            LocalDate date = entry.getStartDate();
+            if (date.isBefore(first) || date.isAfter(last)) continue;
+            LocalDateTime start = date.atTime(entry.getStartTime());
+            LocalDateTime end = date.atTime(entry.getEndTime());
+            if (end.isBefore(start)) end = end.plusDays(1);
+            minutes += workingMinutesBetween(start, end);
+        }
+        return minutes;
+    }
+    //</editor-fold>
+
+    private BusinessYear yearOf(int year){
+        return years.computeIfAbsent(year, this::compile);
+    }
+
+    /*
+        compile applies the rules to every day of a year. Exceptions take
+            priority over holidays, which take priority over the weekly hours.
+    */
+    private BusinessYear compile(int yearNumber){
+        BusinessYear year = new BusinessYear(yearNumber);
+        LocalDate date = LocalDate.of(yearNumber, 1, 1);
+        for (int day = 0; day < year.dayStart.length; day++, date = date.plusDays(1)){
+            int[] hours = exceptions.get(date);
+            if (hours == null && !holidays.contains(date)){
+                hours = workingHours.get(date.getDayOfWeek());
+            }
+            if (hours != null && hours[1] > hours[0]){
+                year.dayStart[day] = hours[0];
+                year.dayEnd[day] = hours[1];
+                year.workingDays.set(day);
+            }
+            year.cumulative[day + 1] = year.cumulative[day] + (year.dayEnd[day] - year.dayStart[day]);
+        }
+        return year;
+    }
+
+    /*
+        BusinessYear is the compiled lookup table for one year. Non-working days
+            have a start and end of 0, so they add nothing to the running total.
+    */
+    private static final class BusinessYear {
+        private final int year;
+        private final BitSet workingDays;
+        private final int[] dayStart;
+        private final int[] dayEnd;
+        private final long[] cumulative;        //cumulative[d] is the working minutes before day d
+
+        private BusinessYear(int year){
+            int days = Year.of(year).length();
+            this.year = year;
+            this.workingDays = new BitSet(days);
+            this.dayStart = new int[days];
+            this.dayEnd = new int[days];
+            this.cumulative = new long[days + 1];
+        }
+
+        private long totalMinutes(){
+            return cumulative[cumulative.length - 1];
+        }
+
+        /*
+            minutesBefore counts the working minutes in this year before a moment
+        */
+        private long minutesBefore(LocalDateTime moment){
+            int day = moment.getDayOfYear() - 1;
+            int minute = moment.getHour() * 60 + moment.getMinute();
+            int worked = Math.min(Math.max(minute, dayStart[day]), dayEnd[day]) - dayStart[day];
+            return cumulative[day] + Math.max(worked, 0);
+        }
+
+        /*
+            timeAt finds the moment when the running total reaches target, which
+                must be between 1 and totalMinutes. A binary search finds the
+                first day whose total reaches it.
+        */
+        private LocalDateTime timeAt(long target){
+            int low = 0;
+            int high = dayStart.length - 1;
+            while (low < high){
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle + 1] >= target){
+                    high = middle;
+                }
+                else{
+                    low = middle + 1;
+                }
+            }
+            int minute = dayStart[low] + (int) (target - cumulative[low]);
+            LocalDate date = LocalDate.ofYearDay(year, low + 1);
+            return minute >= MINUTES_PER_DAY ? date.plusDays(1).atStartOfDay() : date.atTime(minute / 60, minute % 60);
+        }
+
+        private LocalDateTime startOf(int day){
+            return LocalDate.ofYearDay(year, day + 1).atTime(dayStart[day] / 60, dayStart[day] % 60);
+        }
+    }
+}
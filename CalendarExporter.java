@@ -0,0 +1,388 @@
+/**
+ * @author Michael Girard
+ */
+package com.github.michael_girard.scheduler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class CalendarExporter {
+    /*
+        CalendarExporter writes week and month calendars as static HTML or SVG
+        without starting JavaFX. It lays the days out with CalendarLayout, so
+        an exported page matches what the Scheduler shows on screen.
+    */
+    public enum Format { HTML, SVG }
+
+    private static final String[] DAY_NAMES = {
+        "Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday"
+    };
+
+    //SVG page geometry, in pixels
+    private static final int CELL_WIDTH = 140;
+    private static final int MONTH_CELL_HEIGHT = 120;
+    private static final int WEEK_CELL_HEIGHT = 480;
+    private static final int TITLE_HEIGHT = 50;
+    private static final int HEADER_HEIGHT = 24;
+    private static final int LINE_HEIGHT = 16;
+
+    private final Format format;
+    private BusinessCalendar businessCalendar = null;
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    public CalendarExporter(Format format){
+        this.format = format;
+    }
+    //</editor-fold>
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public BusinessCalendar getBusinessCalendar() {
+        return businessCalendar;
+    }
+
+    /*
+        setBusinessCalendar shades non-working days, the same as the Scheduler does
+    */
+    public void setBusinessCalendar(BusinessCalendar businessCalendar) {
+        this.businessCalendar = businessCalendar;
+    }
+
+    private boolean isWorkingDay(LocalDate date){
+        return businessCalendar == null || businessCalendar.isWorkingDay(date);
+    }
+
+    /*
+        export writes one week or month to the writer. The entries don't need
+            to be sorted, and entries outside of the period are ignored.
+    */
+    public void export(CalendarLayout layout, Collection<? extends ScheduleInfo> entries, Writer out) throws IOException{
+        List<List<ScheduleInfo>> days = bucketEntries(layout, entries);
+        if (format == Format.HTML){
+            writeHtml(layout, days, out);
+        }
+        else{
+            writeSvg(layout, days, out);
+        }
+        out.flush();
+    }
+
+    /*
+        exportRange writes every week or month from the first date to the last
+            into the output directory, one file per period, using up to threads
+            threads at a time. The entries are sorted once, and each page only
+            looks at the entries in its own period.
+    */
+    public ExportReport exportRange(ChronoUnit timeSpan, LocalDate first, LocalDate last,
+            Collection<? extends ScheduleInfo> entries, Path outputDirectory, String fileNamePrefix, int threads){
+        List<ScheduleInfo> sorted = new ArrayList<>(entries);
+        Collections.sort(sorted);
+
+        List<ExportJob> jobs = new ArrayList<>();
+        for (CalendarLayout layout = CalendarLayout.of(timeSpan, first); !layout.getFirstDate().isAfter(last); layout = layout.next()){
+            String fileName = fileNamePrefix + layout.getFirstDate() + (format == Format.HTML ? ".html" : ".svg");
+            jobs.add(new ExportJob(layout, periodEntries(sorted, layout), outputDirectory.resolve(fileName)));
+        }
+        return exportAll(jobs, threads);
+    }
+
+    /*
+        exportAll runs the jobs on a fixed pool of threads and waits for them to
+            finish. A failed page doesn't stop the others; its exception is
+            collected in the report instead. If the calling thread is
+            interrupted, the pages still running are cancelled and only those
+            that had already been written are counted.
+    */
+    public ExportReport exportAll(List<ExportJob> jobs, int threads){
+        if (threads < 1){
+            throw new IllegalArgumentException("At least one export thread is required.");
+        }
+        long started = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "CalendarExporter worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Future<?>> pending = new ArrayList<>(jobs.size());
+        List<Exception> failures = new ArrayList<>();
+        try{
+            for (ExportJob job : jobs){
+                pending.add(executor.submit(() -> {
+                    try (Writer out = Files.newBufferedWriter(job.getOutput(), StandardCharsets.UTF_8)){
+                        export(job.getLayout(), job.getEntries(), out);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> page : pending){
+                try{
+                    page.get();
+                }
+                catch (ExecutionException ex){
+                    failures.add(ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex);
+                }
+            }
+        }
+        catch (InterruptedException ex){
+            Thread.currentThread().interrupt();
+            failures.add(ex);
+        }
+        finally{
+            executor.shutdownNow();
+        }
+
+        int written = 0;
+        for (Future<?> page : pending){
+            if (completedSuccessfully(page)) written++;
+        }
+        return new ExportReport(written, failures, System.nanoTime() - started);
+    }
+
+    private static boolean completedSuccessfully(Future<?> page){
+        if (!page.isDone() || page.isCancelled()) return false;
+        try{
+            page.get();     //Already done, so this doesn't block
+            return true;
+        }
+        catch (InterruptedException | ExecutionException ex){
+            return false;
+        }
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Entries">
+    /*
+        periodEntries finds the entries in a period of a sorted list with a
+            binary search, rather than scanning the whole list for every page.
+    */
+    private static List<ScheduleInfo> periodEntries(List<ScheduleInfo> sorted, CalendarLayout layout){
+        int start = firstIndexOnOrAfter(sorted, layout.getFirstDate());
+        int end = firstIndexOnOrAfter(sorted, layout.getLastDate().plusDays(1));
+        return sorted.subList(start, end);
+    }
+
+    private static int firstIndexOnOrAfter(List<ScheduleInfo> sorted, LocalDate date){
+        int low = 0;
+        int high = sorted.size();
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (sorted.get(middle).getStartDate().isBefore(date)){
+                low = middle + 1;
+            }
+            else{
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static List<List<ScheduleInfo>> bucketEntries(CalendarLayout layout, Collection<? extends ScheduleInfo> entries){
+        List<List<ScheduleInfo>> days = new ArrayList<>(layout.getDayCount());
+        for (int day = 0; day < layout.getDayCount(); day++){
+            days.add(new ArrayList<>());
+        }
+        for (ScheduleInfo entry : entries){
+            long day = ChronoUnit.DAYS.between(layout.getFirstDate(), entry.getStartDate());
+            if (day >= 0 && day < days.size()) days.get((int) day).add(entry);
+        }
+        for (List<ScheduleInfo> day : days){
+            Collections.sort(day);
+        }
+        return days;
+    }
+
+    private static List<ScheduleInfo> entriesInCell(CalendarLayout layout, List<List<ScheduleInfo>> days, int cell){
+        int day = cell - layout.getLeadingCells();
+        return (day < 0 || day >= days.size()) ? null : days.get(day);
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="HTML">
+    private void writeHtml(CalendarLayout layout, List<List<ScheduleInfo>> days, Writer out) throws IOException{
+        BufferedWriter html = (out instanceof BufferedWriter) ? (BufferedWriter) out : new BufferedWriter(out);
+        html.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n<title>");
+        html.write(escape(layout.getTitle()));
+        html.write("</title>\n<style>\n"
+                + "table{border-collapse:collapse;width:100%;table-layout:fixed}\n"
+                + "th{padding-bottom:5px}\n"
+                + "td{border:1px solid black;vertical-align:top;height:" + (layout.getTimeSpan() == ChronoUnit.WEEKS ? WEEK_CELL_HEIGHT : MONTH_CELL_HEIGHT) + "px}\n"
+                + "td.outside{background:lightgray}\n"
+                + "td.closed{background:gainsboro}\n"
+                + ".day{text-align:right}\n"
+                + ".entry{border:1px solid black;margin:2px}\n"
+                + "</style>\n</head>\n<body>\n<h1>");
+        html.write(escape(layout.getTitle()));
+        html.write("</h1>\n<table>\n<tr>");
+        for (String dayName : DAY_NAMES){
+            html.write("<th>" + dayName + "</th>");
+        }
+        html.write("</tr>\n");
+
+        for (int cell = 0; cell < layout.getCellCount(); cell++){
+            if (cell % CalendarLayout.DAYS_IN_WEEK == 0) html.write("<tr>");
+            LocalDate date = layout.dateAt(cell);
+            if (date == null){
+                html.write("<td class=\"outside\"></td>");
+            }
+            else{
+                html.write(isWorkingDay(date) ? "<td>" : "<td class=\"closed\">");
+                if (layout.getTimeSpan() == ChronoUnit.MONTHS){
+                    html.write("<div class=\"day\">" + date.getDayOfMonth() + "</div>");
+                }
+                for (ScheduleInfo entry : entriesInCell(layout, days, cell)){
+                    html.write("<div class=\"entry\">");
+                    html.write(escape(entry.toString()));
+                    html.write("</div>");
+                }
+                html.write("</td>");
+            }
+            if (cell % CalendarLayout.DAYS_IN_WEEK == CalendarLayout.DAYS_IN_WEEK - 1) html.write("</tr>\n");
+        }
+        html.write("</table>\n</body>\n</html>\n");
+        html.flush();
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="SVG">
+    private void writeSvg(CalendarLayout layout, List<List<ScheduleInfo>> days, Writer out) throws IOException{
+        BufferedWriter svg = (out instanceof BufferedWriter) ? (BufferedWriter) out : new BufferedWriter(out);
+        int cellHeight = (layout.getTimeSpan() == ChronoUnit.WEEKS ? WEEK_CELL_HEIGHT : MONTH_CELL_HEIGHT);
+        int width = CELL_WIDTH * CalendarLayout.DAYS_IN_WEEK;
+        int gridTop = TITLE_HEIGHT + HEADER_HEIGHT;
+        int height = gridTop + cellHeight * layout.getRowCount();
+
+        svg.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width + "\" height=\"" + height + "\" font-family=\"sans-serif\" font-size=\"12\">\n");
+        svg.write("<text x=\"" + width / 2 + "\" y=\"" + (TITLE_HEIGHT - 15) + "\" font-size=\"24\" text-anchor=\"middle\">");
+        svg.write(escape(layout.getTitle()));
+        svg.write("</text>\n");
+        for (int column = 0; column < CalendarLayout.DAYS_IN_WEEK; column++){
+            svg.write("<text x=\"" + (column * CELL_WIDTH + CELL_WIDTH / 2) + "\" y=\"" + (gridTop - 8) + "\" text-anchor=\"middle\">" + DAY_NAMES[column] + "</text>\n");
+        }
+
+        //Leave room for the day number in the month view
+        int firstLine = (layout.getTimeSpan() == ChronoUnit.MONTHS ? 2 : 1);
+        int linesPerCell = cellHeight / LINE_HEIGHT - firstLine;
+        for (int cell = 0; cell < layout.getCellCount(); cell++){
+            int x = (cell % CalendarLayout.DAYS_IN_WEEK) * CELL_WIDTH;
+            int y = gridTop + (cell / CalendarLayout.DAYS_IN_WEEK) * cellHeight;
+            LocalDate date = layout.dateAt(cell);
+            svg.write("<rect x=\"" + x + "\" y=\"" + y + "\" width=\"" + CELL_WIDTH + "\" height=\"" + cellHeight
+                    + "\" fill=\"" + (date == null ? "lightgray" : isWorkingDay(date) ? "white" : "gainsboro") + "\" stroke=\"black\"/>\n");
+            if (date == null) continue;
+
+            if (layout.getTimeSpan() == ChronoUnit.MONTHS){
+                svg.write("<text x=\"" + (x + CELL_WIDTH - 4) + "\" y=\"" + (y + LINE_HEIGHT) + "\" text-anchor=\"end\">" + date.getDayOfMonth() + "</text>\n");
+            }
+            List<ScheduleInfo> cellEntries = entriesInCell(layout, days, cell);
+            for (int line = 0; line < cellEntries.size() && line < linesPerCell; line++){
+                //Replace the last line with a count if the entries don't all fit
+                String text = (line == linesPerCell - 1 && cellEntries.size() > linesPerCell)
+                        ? "+" + (cellEntries.size() - line) + " more"
+                        : cellEntries.get(line).toString();
+                svg.write("<text x=\"" + (x + 4) + "\" y=\"" + (y + (firstLine + line) * LINE_HEIGHT) + "\">");
+                svg.write(escape(text));
+                svg.write("</text>\n");
+            }
+        }
+        svg.write("</svg>\n");
+        svg.flush();
+    }
+    //</editor-fold>
+
+    private static String escape(String text){
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            switch (c){
+                case '<': escaped.append("&lt;"); break;
+                case '>': escaped.append("&gt;"); break;
+                case '&': escaped.append("&amp;"); break;
+                case '"': escaped.append("&quot;"); break;
+                case '\'': escaped.append("&#39;"); break;
+                default: escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /*
+        ExportJob is one page to export: a period, its entries, and the file to write
+    */
+    public static class ExportJob {
+        private final CalendarLayout layout;
+        private final Collection<? extends ScheduleInfo> entries;
+        private final Path output;
+
+        public ExportJob(CalendarLayout layout, Collection<? extends ScheduleInfo> entries, Path output){
+            this.layout = layout;
+            this.entries = entries;
+            this.output = output;
+        }
+
+        public CalendarLayout getLayout() {
+            return layout;
+        }
+
+        public Collection<? extends ScheduleInfo> getEntries() {
+            return entries;
+        }
+
+        public Path getOutput() {
+            return output;
+        }
+    }
+
+    /*
+        ExportReport says how many pages were written, how long it took, and
+            what went wrong with any pages that failed.
+    */
+    public static class ExportReport {
+        private final int pages;
+        private final List<Exception> failures;
+        private final long elapsedNanos;
+
+        ExportReport(int pages, List<Exception> failures, long elapsedNanos){
+            this.pages = pages;
+            this.failures = Collections.unmodifiableList(failures);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getPages() {
+            return pages;
+        }
+
+        public List<Exception> getFailures() {
+            return failures;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getPagesPerSecond(){
+            return elapsedNanos == 0 ? 0 : pages / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString(){
+            return pages + " pages in " + String.format("%.2f", elapsedNanos / 1e9) + "s ("
+                    + String.format("%.1f", getPagesPerSecond()) + " pages/s), " + failures.size() + " failed";
+        }
+    }
+}
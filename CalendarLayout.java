@@ -0,0 +1,143 @@
+/**
+ * @author Michael Girard
+ */
+package com.github.michael_girard.scheduler;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+public class CalendarLayout {
+    /*
+        CalendarLayout holds the rules for which days a week or month calendar
+        shows and which cell each day goes in. Cells are numbered from 0 across
+        each row, Sunday to Saturday. It has no JavaFX dependencies, so the same
+        rules drive both the Scheduler and the CalendarExporter.
+    */
+    public static final int DAYS_IN_WEEK = 7;
+
+    private final ChronoUnit timeSpan;
+    private final LocalDate firstDate;      //First day that belongs to the period
+    private final LocalDate lastDate;       //Last day that belongs to the period
+    private final int leadingCells;         //Greyed out cells before firstDate
+    private final int cellCount;
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    private CalendarLayout(ChronoUnit timeSpan, LocalDate firstDate, LocalDate lastDate, int leadingCells, int cellCount){
+        this.timeSpan = timeSpan;
+        this.firstDate = firstDate;
+        this.lastDate = lastDate;
+        this.leadingCells = leadingCells;
+        this.cellCount = cellCount;
+    }
+
+    /*
+        of returns the layout of the week or month containing the date
+    */
+    public static CalendarLayout of(ChronoUnit timeSpan, LocalDate date){
+        switch(timeSpan){
+            case WEEKS: return week(date);
+            case MONTHS: return month(date);
+            default: throw new UnsupportedOperationException("Invalid ChronoUnit supplied to the scheduler. Valid values are WEEKS and MONTHS.");
+        }
+    }
+
+    private static CalendarLayout week(LocalDate date){
+        /*
+            A week starts on Sunday. If the date is already Sunday, just use that.
+            Otherwise, it needs to get the date for last sunday. This is done by
+                calling LocalDate.with(DayOfWeek.SUNDAY), which moves to the next
+                Sunday, and then backing up a week to the right sunday with minusDays.
+        */
+        LocalDate sunday;
+        if (!date.getDayOfWeek().equals(DayOfWeek.SUNDAY)){
+            sunday = date.with(DayOfWeek.SUNDAY).minusDays(7);
+        }
+        else{
+            sunday = date;
+        }
+        return new CalendarLayout(ChronoUnit.WEEKS, sunday, sunday.plusDays(DAYS_IN_WEEK - 1), 0, DAYS_IN_WEEK);
+    }
+
+    private static CalendarLayout month(LocalDate date){
+        LocalDate firstDayOfMonth = date.withDayOfMonth(1);
+        int daysInMonth = firstDayOfMonth.getMonth().length(firstDayOfMonth.isLeapYear());
+
+        /*
+            The month isn't likely to start on Sunday, so the part of the week
+                before the first day of the month is greyed out.
+
+            Sometimes the first day is in the second week of the month
+                (somehow - see April 2018), so in those cases a week is
+                subtracted from the first day because there's no sense in wasting
+                space with an entire grey week.
+        */
+        int firstDayInMonth = firstDayOfMonth.getDayOfWeek().getValue();
+        if (firstDayInMonth >= 7) firstDayInMonth -= 7;
+
+        //Either 5 weeks or 6 are displayed, depending on where the month starts and ends
+        int cells = (int) Math.ceil((firstDayInMonth + daysInMonth) / 7.0) * 7;
+        return new CalendarLayout(ChronoUnit.MONTHS, firstDayOfMonth, firstDayOfMonth.plusDays(daysInMonth - 1), firstDayInMonth, cells);
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Getters">
+    public ChronoUnit getTimeSpan() {
+        return timeSpan;
+    }
+
+    public LocalDate getFirstDate() {
+        return firstDate;
+    }
+
+    public LocalDate getLastDate() {
+        return lastDate;
+    }
+
+    public int getLeadingCells() {
+        return leadingCells;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    public int getRowCount(){
+        return cellCount / DAYS_IN_WEEK;
+    }
+
+    public int getDayCount(){
+        return (int) ChronoUnit.DAYS.between(firstDate, lastDate) + 1;
+    }
+    //</editor-fold>
+
+    /*
+        dateAt returns the date shown in a cell, or null if the cell is greyed out
+    */
+    public LocalDate dateAt(int cell){
+        int day = cell - leadingCells;
+        if (day < 0 || day >= getDayCount()) return null;
+        return firstDate.plusDays(day);
+    }
+
+    /*
+        next and previous step to the neighbouring week or month
+    */
+    public CalendarLayout next(){
+        return of(timeSpan, timeSpan == ChronoUnit.WEEKS ? firstDate.plusWeeks(1) : firstDate.plusMonths(1));
+    }
+
+    public CalendarLayout previous(){
+        return of(timeSpan, timeSpan == ChronoUnit.WEEKS ? firstDate.minusWeeks(1) : firstDate.minusMonths(1));
+    }
+
+    /*
+        getTitle matches the heading the Scheduler shows above the calendar
+    */
+    public String getTitle(){
+        if (timeSpan == ChronoUnit.WEEKS){
+            return "Week of " + firstDate.getMonth() + " " + firstDate.getDayOfMonth();
+        }
+        return "Month of " + firstDate.getMonth() + ", " + firstDate.getYear();
+    }
+}
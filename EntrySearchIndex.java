@@ -0,0 +1,239 @@
+/**
+ * @author Michael Girard
+ */
+package com.github.michael_girard.scheduler;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public class EntrySearchIndex {
+    private static final Comparator<ScheduleInfo> EARLIEST_FIRST = Comparator.<ScheduleInfo>naturalOrder()
+            .thenComparing(SchedulerDelta::titleOf)
+            .thenComparing(SchedulerDelta::descriptionOf);
+
+    /*
+        postings maps each token to the entries containing it. Keeping the
+        tokens in a TreeMap means every token starting with a prefix sits in
+        one contiguous range, which is what makes type-ahead prefix search fast.
+
+        indexedTokens remembers the tokens each entry was indexed under, so an
+        entry can be removed or re-indexed after an edit without scanning
+        every posting. Entries are tracked by identity, since the same
+        appointment can legitimately appear twice.
+    */
+    private final TreeMap<String, Set<ScheduleInfo>> postings = new TreeMap<>();
+    private final Map<ScheduleInfo, Set<String>> indexedTokens = new IdentityHashMap<>();
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    //Create an empty index
+    public EntrySearchIndex(){
+    }
+
+    //Create an index containing the supplied entries
+    public EntrySearchIndex(Collection<? extends ScheduleInfo> entries){
+        addAll(entries);
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Updates">
+    public synchronized void add(ScheduleInfo entry){
+        if (indexedTokens.containsKey(entry)) return;
+        Set<String> tokens = tokensOf(entry);
+        indexedTokens.put(entry, tokens);
+        for (String token : tokens){
+            postings.computeIfAbsent(token, key -> newIdentitySet()).add(entry);
+        }
+    }
+
+    public synchronized void addAll(Collection<? extends ScheduleInfo> entries){
+        for (ScheduleInfo entry : entries){
+            add(entry);
+        }
+    }
+
+    public synchronized boolean remove(ScheduleInfo entry){
+        Set<String> tokens = indexedTokens.remove(entry);
+        if (tokens == null) return false;
+        for (String token : tokens){
+            Set<ScheduleInfo> containing = postings.get(token);
+            containing.remove(entry);
+            if (containing.isEmpty()) postings.remove(token);
+        }
+        return true;
+    }
+
+    /*
+        update re-indexes an entry after its title or description was edited
+    */
+    public synchronized void update(ScheduleInfo entry){
+        remove(entry);
+        add(entry);
+    }
+
+    public synchronized void clear(){
+        postings.clear();
+        indexedTokens.clear();
+    }
+
+    public synchronized int size(){
+        return indexedTokens.size();
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Searching">
+    /*
+        search finds the entries containing every word in the query. Each word
+            matches as a prefix, so "doc app" finds "Doctor's Appointment".
+            Results are grouped by date, earliest first.
+    */
+    public SortedMap<LocalDate, List<ScheduleInfo>> search(String query){
+        return search(query, null, null);
+    }
+
+    /*
+        search with a first and last date only returns entries starting between
+            them, inclusive. Either date can be null to leave that end open.
+    */
+    public SortedMap<LocalDate, List<ScheduleInfo>> search(String query, LocalDate first, LocalDate last){
+        return search(query, first, last, Integer.MAX_VALUE);
+    }
+
+    /*
+        search with a limit returns at most that many entries, keeping the
+            earliest matches. Only the best matches so far are held while the
+            candidates are checked, so type-ahead stays cheap when a short
+            prefix matches most of the index.
+    */
+    public synchronized SortedMap<LocalDate, List<ScheduleInfo>> search(String query, LocalDate first, LocalDate last, int limit){
+        SortedMap<LocalDate, List<ScheduleInfo>> results = new TreeMap<>();
+        for (ScheduleInfo entry : collect(query, first, last, limit, EARLIEST_FIRST)){
+            results.computeIfAbsent(entry.getStartDate(), key -> new ArrayList<>()).add(entry);
+        }
+        return results;
+    }
+
+    /*
+        searchNearest returns up to limit matches, closest to the date first.
+            Entries the same number of days away are ordered earliest first.
+    */
+    public synchronized List<ScheduleInfo> searchNearest(String query, LocalDate date, int limit){
+        Comparator<ScheduleInfo> nearestFirst = Comparator
+                .comparingLong((ScheduleInfo entry) -> Math.abs(ChronoUnit.DAYS.between(date, entry.getStartDate())))
+                .thenComparing(EARLIEST_FIRST);
+        return collect(query, null, null, limit, nearestFirst);
+    }
+
+    /*
+        collect returns the best matches in order. Ties in the entries' own
+            ordering are broken on their text, so the same query always gives
+            the same results.
+    */
+    private List<ScheduleInfo> collect(String query, LocalDate first, LocalDate last, int limit, Comparator<ScheduleInfo> order){
+        List<ScheduleInfo> results = new ArrayList<>();
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) return results;
+
+        /*
+            Walk the postings of the word with the fewest matches and check the
+            other words against the tokens each candidate was indexed under, so
+            nothing is collected for the other words.
+        */
+        String narrowest = null;
+        int narrowestCount = Integer.MAX_VALUE;
+        for (String word : words){
+            int count = 0;
+            for (Set<ScheduleInfo> containing : prefixRange(word).values()){
+                count += containing.size();
+            }
+            if (count == 0) return results;
+            if (count < narrowestCount){
+                narrowest = word;
+                narrowestCount = count;
+            }
+        }
+
+        //The head of the heap is the worst match kept, so it's the one dropped when there are too many
+        PriorityQueue<ScheduleInfo> best = new PriorityQueue<>(order.reversed());
+        SortedMap<String, Set<ScheduleInfo>> candidates = prefixRange(narrowest);
+        Set<ScheduleInfo> checked = (candidates.size() > 1 ? newIdentitySet() : null);
+        for (Set<ScheduleInfo> containing : candidates.values()){
+            for (ScheduleInfo entry : containing){
+                if (checked != null && !checked.add(entry)) continue;
+                LocalDate date = entry.getStartDate();
+                if (first != null && date.isBefore(first)) continue;
+                if (last != null && date.isAfter(last)) continue;
+                if (!matchesAll(entry, words)) continue;
+
+                best.add(entry);
+                if (best.size() > limit) best.poll();
+            }
+        }
+
+        results.addAll(best);
+        results.sort(order);
+        return results;
+    }
+
+    private SortedMap<String, Set<ScheduleInfo>> prefixRange(String prefix){
+        return postings.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    private boolean matchesAll(ScheduleInfo entry, List<String> words){
+        Set<String> tokens = indexedTokens.get(entry);
+        for (String word : words){
+            if (!tokens.contains(word) && !hasPrefix(tokens, word)) return false;
+        }
+        return true;
+    }
+
+    private static boolean hasPrefix(Set<String> tokens, String prefix){
+        for (String token : tokens){
+            if (token.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+    //</editor-fold>
+
+    /*
+        tokenize splits text into lower case words made of letters and digits
+    */
+    static List<String> tokenize(String text){
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++){
+            boolean wordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordCharacter && start < 0){
+                start = i;
+            }
+            else if (!wordCharacter && start >= 0){
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> tokensOf(ScheduleInfo entry){
+        Set<String> tokens = new HashSet<>(tokenize(SchedulerDelta.titleOf(entry)));
+        tokens.addAll(tokenize(SchedulerDelta.descriptionOf(entry)));
+        return tokens;
+    }
+
+    private static Set<ScheduleInfo> newIdentitySet(){
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * @author Michael Girard
+ */
+package com.github.michael_girard.scheduler;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface EntrySource {
+    /*
+        getEntries returns every entry starting between the first and last
+            dates, inclusive. It is called from a background thread by
+            EntrySourceCache, so it is free to block on files or the network.
+    */
+    List<ScheduleInfo> getEntries(LocalDate first, LocalDate last) throws IOException;
+}
@@ -0,0 +1,149 @@
+/**
+ * @author Michael Girard
+ */
+package com.github.michael_girard.scheduler;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class EntrySourceCache {
+    private static final int DEFAULT_LOADER_THREADS = 2;
+    private static final int MIN_RANGES = 3;       //A view's window plus the neighbours it prefetches
+
+    private final EntrySource source;
+    private final ExecutorService loader;
+    private final Map<Range, CompletableFuture<List<ScheduleInfo>>> ranges;
+    private final int maxRanges;
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    //Create a cache holding up to maxRanges fetched ranges
+    public EntrySourceCache(EntrySource source, int maxRanges){
+        if (maxRanges < MIN_RANGES){
+            throw new IllegalArgumentException("An EntrySourceCache must hold at least " + MIN_RANGES + " ranges.");
+        }
+        this.source = source;
+        this.maxRanges = maxRanges;
+        this.loader = Executors.newFixedThreadPool(DEFAULT_LOADER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "EntrySourceCache loader");
+            thread.setDaemon(true);     //Don't keep the application alive for a pending load
+            return thread;
+        });
+        /*
+            An access-ordered LinkedHashMap gives least recently used eviction.
+            Loads that are still in flight live in the same map, which is what
+            lets concurrent requests for the same range share one load.
+        */
+        this.ranges = new LinkedHashMap<>(16, 0.75f, true);
+    }
+    //</editor-fold>
+
+    public EntrySource getSource() {
+        return source;
+    }
+
+    /*
+        request returns the entries between the first and last dates, inclusive.
+            A cached or in-flight load for the same range is reused; otherwise the
+            range is loaded on a background thread. Failed loads are not cached,
+            so the range is retried on the next request.
+    */
+    public CompletableFuture<List<ScheduleInfo>> request(LocalDate first, LocalDate last){
+        Range range = new Range(first, last);
+        CompletableFuture<List<ScheduleInfo>> load;
+        synchronized (ranges){
+            load = ranges.get(range);
+            if (load != null) return load;
+            load = new CompletableFuture<>();
+            ranges.put(range, load);
+            evict();
+        }
+
+        final CompletableFuture<List<ScheduleInfo>> pending = load;
+        loader.execute(() -> {
+            try{
+                List<ScheduleInfo> loaded = new ArrayList<>(source.getEntries(first, last));
+                Collections.sort(loaded);
+                pending.complete(Collections.unmodifiableList(loaded));
+            }
+            catch (Exception ex){
+                synchronized (ranges){
+                    ranges.remove(range, pending);
+                }
+                pending.completeExceptionally(ex);
+            }
+        });
+        return pending;
+    }
+
+    /*
+        evict drops the least recently used ranges that have finished loading.
+            Loads still in flight are never dropped, otherwise a second request
+            for the range would start a duplicate load; the cache can grow past
+            maxRanges until they finish. Must be called holding the ranges lock.
+    */
+    private void evict(){
+        Iterator<CompletableFuture<List<ScheduleInfo>>> eldest = ranges.values().iterator();
+        while (ranges.size() > maxRanges && eldest.hasNext()){
+            if (eldest.next().isDone()) eldest.remove();
+        }
+    }
+
+    /*
+        getIfLoaded returns the entries for a range that has finished loading,
+            or null if the range hasn't been requested or is still loading.
+    */
+    public List<ScheduleInfo> getIfLoaded(LocalDate first, LocalDate last){
+        CompletableFuture<List<ScheduleInfo>> load;
+        synchronized (ranges){
+            load = ranges.get(new Range(first, last));
+        }
+        if (load == null || !load.isDone() || load.isCompletedExceptionally()) return null;
+        return load.join();
+    }
+
+    /*
+        invalidate drops every cached range, so the next requests go back to the source
+    */
+    public void invalidate(){
+        synchronized (ranges){
+            ranges.clear();
+        }
+    }
+
+    public void shutdown(){
+        loader.shutdownNow();
+    }
+
+    /*
+        Range is the cache key: an inclusive pair of dates
+    */
+    private static final class Range {
+        private final LocalDate first;
+        private final LocalDate last;
+
+        private Range(LocalDate first, LocalDate last){
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        public boolean equals(Object other){
+            if (!(other instanceof Range)) return false;
+            return first.equals(((Range) other).first) && last.equals(((Range) other).last);
+        }
+
+        @Override
+        public int hashCode(){
+            return Objects.hash(first, last);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * @author Michael Girard
+ */
+package com.github.michael_girard.scheduler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class FileEntrySource implements EntrySource {
+    /*
+        The file holds one entry per line, sorted by date:
+            date <tab> start time <tab> end time <tab> title <tab> description
+        Tabs, newlines and backslashes inside the title and description are
+            escaped with a backslash.
+
+        Opening the file scans it once and remembers the byte offset of the
+            first line for each date, so a request only reads the lines in
+            its range.
+    */
+    private final Path file;
+    private final TreeMap<LocalDate, Long> dateOffsets = new TreeMap<>();
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    public FileEntrySource(Path file) throws IOException{
+        this.file = file;
+        reindex();
+    }
+    //</editor-fold>
+
+    public Path getFile() {
+        return file;
+    }
+
+    /*
+        reindex rebuilds the date offsets. It needs to be called if the file
+            is rewritten while the source is in use.
+    */
+    public synchronized void reindex() throws IOException{
+        dateOffsets.clear();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))){
+            StringBuilder date = new StringBuilder();
+            boolean readingDate = true;
+            long offset = 0;
+            long lineStart = 0;
+            LocalDate previousDate = null;
+            int b;
+            while ((b = in.read()) != -1){
+                offset++;
+                if (b == '\n'){
+                    lineStart = offset;
+                    date.setLength(0);
+                    readingDate = true;
+                }
+                else if (readingDate){
+                    if (b != '\t'){
+                        date.append((char) b);
+                        continue;
+                    }
+                    readingDate = false;
+                    LocalDate lineDate = parseDate(date.toString());
+                    if (previousDate != null && lineDate.isBefore(previousDate)){
+                        throw new IOException("Entries in " + file + " must be sorted by date.");
+                    }
+                    dateOffsets.putIfAbsent(lineDate, lineStart);
+                    previousDate = lineDate;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<ScheduleInfo> getEntries(LocalDate first, LocalDate last) throws IOException{
+        Map.Entry<LocalDate, Long> start;
+        synchronized (this){
+            start = dateOffsets.ceilingEntry(first);
+        }
+        List<ScheduleInfo> found = new ArrayList<>();
+        if (start == null || start.getKey().isAfter(last)) return found;
+
+        try (FileChannel channel = FileChannel.open(file)){
+            channel.position(start.getValue());
+            BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null){
+                if (line.isEmpty()) continue;
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 5){
+                    throw new IOException("Malformed entry in " + file + ": " + line);
+                }
+                LocalDate date = parseDate(fields[0]);
+                if (date.isAfter(last)) break;      //The file is sorted, so nothing later can match
+                found.add(new SchedulerEntry(date,
+                        LocalTime.parse(fields[1]),
+                        LocalTime.parse(fields[2]),
+                        unescape(fields[3]),
+                        unescape(fields[4])));
+            }
+        }
+        catch (DateTimeParseException ex){
+            throw new IOException("Malformed time in " + file, ex);
+        }
+        return found;
+    }
+
+    /*
+        write saves entries in the format FileEntrySource reads, sorting them first
+    */
+    public static void write(Path file, Collection<? extends ScheduleInfo> entries) throws IOException{
+        List<ScheduleInfo> sorted = new ArrayList<>(entries);
+        Collections.sort(sorted);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)){
+            for (ScheduleInfo entry : sorted){
+                writer.write(entry.getStartDate() + "\t"
+                        + entry.getStartTime() + "\t"
+                        + entry.getEndTime() + "\t"
+                        + escape(SchedulerDelta.titleOf(entry)) + "\t"
+                        + escape(SchedulerDelta.descriptionOf(entry)));
+                writer.write('\n');
+            }
+        }
+    }
+
+    private LocalDate parseDate(String text) throws IOException{
+        try{
+            return LocalDate.parse(text);
+        }
+        catch (DateTimeParseException ex){
+            throw new IOException("Malformed date in " + file + ": " + text, ex);
+        }
+    }
+
+    private static String escape(String text){
+        return text.replace("\\", "\\\\")
+                .replace("\t", "\\t")
+                .replace("\n", "\\n")
+                .replace("\r", "\\r");
+    }
+
+    private static String unescape(String text){
+        if (text.indexOf('\\') < 0) return text;
+        StringBuilder unescaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()){
+                char next = text.charAt(++i);
+                switch (next){
+                    case 't': unescaped.append('\t'); break;
+                    case 'n': unescaped.append('\n'); break;
+                    case 'r': unescaped.append('\r'); break;
+                    default: unescaped.append(next);
+                }
+            }
+            else{
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+}
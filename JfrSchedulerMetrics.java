@@ -0,0 +1,140 @@
+/**
+ * @author Michael Girard
+ */
+package com.github.michael_girard.scheduler;
+
+import java.time.temporal.ChronoUnit;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+public class JfrSchedulerMetrics implements SchedulerMetricsListener {
+    /*
+        JfrSchedulerMetrics turns the Scheduler's metrics into Java Flight Recorder
+        events, so they show up next to GC and allocation data in a recording.
+        Events are only built when a recording has them enabled, so leaving this
+        listener installed costs almost nothing when nobody is recording.
+    */
+
+    //Cached once, since Event.isEnabled needs an instance
+    private final RenderEvent renderProbe = new RenderEvent();
+    private final ContentEvent contentProbe = new ContentEvent();
+    private final SortEvent sortProbe = new SortEvent();
+    private final MutationEvent mutationProbe = new MutationEvent();
+
+    /*
+        Renders, content generation and sorts begin their event when the work
+            starts and end it when it's done, so the event's own duration is the
+            time taken and the recording's threshold setting applies to it.
+            When an event isn't enabled there's no token, and nothing is built.
+    */
+    @Override
+    public Object renderStarted(ChronoUnit timeSpan){
+        if (!renderProbe.isEnabled()) return null;
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void renderCompleted(Object token, ChronoUnit timeSpan, long durationNanos, int entriesScanned, int entriesDisplayed, int nodesCreated){
+        if (!(token instanceof RenderEvent)) return;
+        RenderEvent event = (RenderEvent) token;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.timeSpan = timeSpan.toString();
+        event.entriesScanned = entriesScanned;
+        event.entriesDisplayed = entriesDisplayed;
+        event.nodesCreated = nodesCreated;
+        event.commit();
+    }
+
+    @Override
+    public Object contentStarted(){
+        if (!contentProbe.isEnabled()) return null;
+        ContentEvent event = new ContentEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void contentGenerated(Object token, long durationNanos){
+        if (!(token instanceof ContentEvent)) return;
+        ((ContentEvent) token).commit();
+    }
+
+    @Override
+    public Object sortStarted(int entryCount){
+        if (!sortProbe.isEnabled()) return null;
+        SortEvent event = new SortEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void entriesSorted(Object token, int entryCount, long durationNanos){
+        if (!(token instanceof SortEvent)) return;
+        SortEvent event = (SortEvent) token;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.entryCount = entryCount;
+        event.commit();
+    }
+
+    @Override
+    public void entriesMutated(Mutation mutation, int entryCount){
+        if (!mutationProbe.isEnabled()) return;
+        MutationEvent event = new MutationEvent();
+        event.mutation = mutation.toString();
+        event.entryCount = entryCount;
+        event.commit();
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Events">
+    @Name("com.github.michael_girard.scheduler.Render")
+    @Label("Calendar Render")
+    @Category("Scheduler")
+    @Description("A week or month calendar finished filling in its entries")
+    static class RenderEvent extends Event {
+        @Label("Time Span")
+        String timeSpan;
+
+        @Label("Entries Scanned")
+        int entriesScanned;
+
+        @Label("Entries Displayed")
+        int entriesDisplayed;
+
+        @Label("Nodes Created")
+        int nodesCreated;
+    }
+
+    @Name("com.github.michael_girard.scheduler.Content")
+    @Label("Scheduler Content Generated")
+    @Category("Scheduler")
+    @Description("The menu, controls and calendar were rebuilt and swapped into the scene")
+    static class ContentEvent extends Event {
+    }
+
+    @Name("com.github.michael_girard.scheduler.Sort")
+    @Label("Entries Sorted")
+    @Category("Scheduler")
+    static class SortEvent extends Event {
+        @Label("Entry Count")
+        int entryCount;
+    }
+
+    @Name("com.github.michael_girard.scheduler.Mutation")
+    @Label("Entries Changed")
+    @Category("Scheduler")
+    static class MutationEvent extends Event {
+        @Label("Mutation")
+        String mutation;
+
+        @Label("Entry Count")
+        int entryCount;
+    }
+    //</editor-fold>
+}
@@ -3,35 +3,49 @@
  */
 package com.github.michael_girard.scheduler;
 
-import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.geometry.HPos;
 import javafx.geometry.Insets;
 import javafx.geometry.VPos;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.Hyperlink;
 import javafx.scene.control.Label;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.control.Separator;
+import javafx.scene.control.TextField;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.RowConstraints;
+import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
+import javafx.stage.Window;
 
 public class Scheduler {
     /*
@@ -42,10 +56,52 @@ public class Scheduler {
     private ChronoUnit timeSpan;         
     private LocalDateTime startDateTime;
     private List<ScheduleInfo> entries;
+    /*
+        entriesSorted records whether entries is known to be in order. The
+        list passed to the constructor is left untouched until it needs to
+        be sorted, so null and read-only lists are still accepted.
+    */
+    private boolean entriesSorted = false;
     private Stage stage = null;
     private Scene scene;
     private ResourceBundle bundle = null;
     private Font fontType = Font.getDefault();
+    /*
+        When entrySource is set, the entries list is ignored and each view
+        asks the source for just the dates it displays.
+    */
+    private EntrySourceCache entrySource = null;
+    private static final int DEFAULT_CACHED_RANGES = 24;      //At least 3: the window shown and its two neighbours
+    /*
+        searchIndex is created the first time it's asked for, and from then on
+        it's kept up to date as entries are added, removed and replaced.
+    */
+    private EntrySearchIndex searchIndex = null;
+    private static final int MAX_SEARCH_RESULTS = 200;
+    /*
+        In progressive mode the empty calendar is shown straight away, the
+        entries are bucketed into days on a background thread, and the days
+        are filled in a little at a time so the JavaFX thread never stalls.
+    */
+    private boolean progressive = false;
+    private long firstPaintNanos = -1;
+    private long completeNanos = -1;
+    private long viewRequested = -1;        //When generateContent started the view being built
+    private GridPane currentGrid = null;     //The calendar the paint timings belong to
+    private boolean currentFilled = false;   //Whether every day of currentGrid has been filled
+    private Runnable showingWait = null;     //Removes the listener waiting for currentGrid to show
+    private static final long FILL_BUDGET_NANOS = 8_000_000;     //Time spent filling days per pulse
+    /*
+        metricsListener is told how long renders, sorts and content generation
+        take and how often entries change. When it's null nothing is timed.
+    */
+    private SchedulerMetricsListener metricsListener = null;
+    /*
+        When businessCalendar is set, days without working hours are shaded
+        so they stand out from the working days.
+    */
+    private BusinessCalendar businessCalendar = null;
+    private static final String NON_WORKING_DAY_STYLE = "-fx-background: gainsboro;";
     
     //<editor-fold defaultstate="collapsed" desc="Constructors">
     //Create a scheduler starting at the current date
@@ -97,6 +153,11 @@ public class Scheduler {
         this.startDateTime = startDateTime;
     }
 
+    /*
+        getEntries returns the scheduler's own list. Call sortEntries after
+            changing it directly; removeEntry and applyDelta rely on it staying
+            sorted, and they'd silently miss entries that are out of place.
+    */
     public List<ScheduleInfo> getEntries() {
         return entries;
     }
@@ -104,14 +165,175 @@ public class Scheduler {
     public void setEntries(List<ScheduleInfo> appointments) {
         this.entries = appointments;
         sortEntries();
+        if (searchIndex != null){
+            searchIndex.clear();
+            searchIndex.addAll(entries);
+        }
+        if (metricsListener != null) metricsListener.entriesMutated(SchedulerMetricsListener.Mutation.REPLACE_ALL, entries.size());
     }
     
     public boolean addEntry(ScheduleInfo appointment){
         boolean added = entries.add(appointment);
         sortEntries();
+        if (added && searchIndex != null) searchIndex.add(appointment);
+        if (added && metricsListener != null) metricsListener.entriesMutated(SchedulerMetricsListener.Mutation.ADD, 1);
         return added;
     }
+
+    /*
+        removeEntry removes an entry with the same content as the one supplied,
+            so entries received from another scheduler can be matched up.
+    */
+    public boolean removeEntry(ScheduleInfo appointment){
+        if (entries == null) return false;
+        ensureSorted();
+        ScheduleInfo match = findEntry(appointment, Collections.emptySet());
+        if (match == null) return false;
+        deleteEntry(match);
+        if (metricsListener != null) metricsListener.entriesMutated(SchedulerMetricsListener.Mutation.REMOVE, 1);
+        return true;
+    }
+
+    /*
+        entryUpdated needs to be called after an entry is edited, so the search
+            index picks up the new text and an entry whose start moved is put
+            back in its sorted position.
+    */
+    public void entryUpdated(ScheduleInfo appointment){
+        if (entries != null && entriesSorted) repositionEntry(appointment);
+        if (searchIndex != null) searchIndex.update(appointment);
+        if (metricsListener != null) metricsListener.entriesMutated(SchedulerMetricsListener.Mutation.UPDATE, 1);
+    }
+
+    /*
+        getSearchIndex returns an index over the titles and descriptions of the
+            entries list. Changes made through the scheduler keep it up to date;
+            changes made directly to the list returned by getEntries don't.
+            Entries loaded from an EntrySource aren't indexed, so the search
+            field is unavailable while one is set.
+    */
+    public EntrySearchIndex getSearchIndex(){
+        if (searchIndex == null){
+            searchIndex = (entries == null ? new EntrySearchIndex() : new EntrySearchIndex(entries));
+        }
+        return searchIndex;
+    }
+
+    /*
+        applyDelta applies the changes computed by SchedulerDelta. Each change
+            is located with a binary search on the sorted entries, so the cost
+            depends on the size of the delta rather than the size of the calendar.
     
+        Every entry the delta removes or changes has to be found before anything
+            is modified. If any are missing, the schedulers have drifted apart, so
+            an IllegalStateException is thrown and the entries are left as they were.
+    */
+    public void applyDelta(SchedulerDelta delta){
+        if (entries == null) entries = new ArrayList<>();
+        ensureSorted();
+        
+        //Match every removal and change first, so a bad delta doesn't get half applied
+        Set<ScheduleInfo> matched = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<ScheduleInfo> missing = new ArrayList<>();
+        List<ScheduleInfo> toRemove = new ArrayList<>(delta.getRemoved());
+        toRemove.addAll(delta.getChangedFrom());
+        for (ScheduleInfo entry : toRemove){
+            ScheduleInfo match = findEntry(entry, matched);
+            if (match == null){
+                missing.add(entry);
+            }
+            else{
+                matched.add(match);
+            }
+        }
+        if (!missing.isEmpty()){
+            throw new IllegalStateException(missing.size() + " entries removed or changed by the delta aren't in this scheduler, so it wasn't applied: " + missing);
+        }
+        
+        for (ScheduleInfo entry : matched){
+            deleteEntry(entry);
+        }
+        for (ScheduleInfo entry : delta.getChangedTo()){
+            insertEntry(entry);
+        }
+        for (ScheduleInfo entry : delta.getAdded()){
+            insertEntry(entry);
+        }
+        if (metricsListener != null) metricsListener.entriesMutated(SchedulerMetricsListener.Mutation.DELTA, delta.size());
+    }
+    
+    /*
+        sortedEntries returns the entries in order without sorting the caller's
+            list, so SchedulerDelta can compare schedulers built on read-only lists.
+    */
+    List<ScheduleInfo> sortedEntries(){
+        if (entries == null) return Collections.emptyList();
+        if (entriesSorted) return entries;
+        List<ScheduleInfo> sorted = new ArrayList<>(entries);
+        Collections.sort(sorted);
+        return sorted;
+    }
+    
+    private void ensureSorted(){
+        if (!entriesSorted) sortEntries();
+    }
+    
+    /*
+        deleteEntry removes an entry that's known to be in the list. The binary
+            search finds its group, and identity picks it out of the group.
+    */
+    private void deleteEntry(ScheduleInfo entry){
+        int index = Collections.binarySearch(entries, entry);
+        while (index > 0 && entries.get(index - 1).compareTo(entry) == 0) index--;
+        while (entries.get(index) != entry) index++;
+        entries.remove(index);
+        if (searchIndex != null) searchIndex.remove(entry);
+    }
+
+    /*
+        repositionEntry moves an edited entry if it's no longer in order with its
+            neighbours. The rest of the list is still sorted, so the binary search
+            finds its new place.
+    */
+    private void repositionEntry(ScheduleInfo appointment){
+        int index = 0;
+        while (index < entries.size() && entries.get(index) != appointment) index++;
+        if (index == entries.size()) return;        //Not one of ours
+        
+        boolean afterPrevious = index == 0 || entries.get(index - 1).compareTo(appointment) <= 0;
+        boolean beforeNext = index == entries.size() - 1 || appointment.compareTo(entries.get(index + 1)) <= 0;
+        if (afterPrevious && beforeNext) return;
+        
+        entries.remove(index);
+        int position = Collections.binarySearch(entries, appointment);
+        entries.add(position < 0 ? -(position + 1) : position, appointment);
+    }
+
+    /*
+        insertEntry puts an entry into its sorted position without resorting
+    */
+    private void insertEntry(ScheduleInfo appointment){
+        int index = Collections.binarySearch(entries, appointment);
+        entries.add(index < 0 ? -(index + 1) : index, appointment);
+        if (searchIndex != null) searchIndex.add(appointment);
+    }
+
+    /*
+        findEntry finds the group of entries sharing the appointment's start
+            with a binary search, then looks through that group for an entry
+            with the same content that hasn't already been matched.
+    */
+    private ScheduleInfo findEntry(ScheduleInfo appointment, Set<ScheduleInfo> alreadyMatched){
+        int index = Collections.binarySearch(entries, appointment);
+        if (index < 0) return null;
+        while (index > 0 && entries.get(index - 1).compareTo(appointment) == 0) index--;
+        for (; index < entries.size() && entries.get(index).compareTo(appointment) == 0; index++){
+            ScheduleInfo candidate = entries.get(index);
+            if (!alreadyMatched.contains(candidate) && SchedulerDelta.sameContent(candidate, appointment)) return candidate;
+        }
+        return null;
+    }
+
     public Scene getScene() {
         generateContent(null);
         return scene;
@@ -139,13 +361,93 @@ public class Scheduler {
     public void setBundle(String bundleName, Locale locale){
         bundle = ResourceBundle.getBundle(bundleName, locale);
     }
+
+    public boolean isProgressive() {
+        return progressive;
+    }
+    
+    public void setProgressive(boolean progressive) {
+        this.progressive = progressive;
+    }
+    
+    /*
+        getTimeToFirstPaint is how long the last calendar took to show its empty
+            days, and getTimeToComplete is how long it took until every day was
+            filled in. They're only measured in progressive mode, from when the
+            view was requested to the end of the first pulse that drew it, so
+            they stay null until the calendar is on a showing window, and
+            getTimeToComplete stays null while the fill is running. With an
+            EntrySource, first paint is the loading calendar and complete
+            includes the load.
+    */
+    public Duration getTimeToFirstPaint(){
+        return firstPaintNanos < 0 ? null : Duration.ofNanos(firstPaintNanos);
+    }
+    
+    public Duration getTimeToComplete(){
+        return completeNanos < 0 ? null : Duration.ofNanos(completeNanos);
+    }
+    
+    public BusinessCalendar getBusinessCalendar() {
+        return businessCalendar;
+    }
+    
+    public void setBusinessCalendar(BusinessCalendar businessCalendar) {
+        this.businessCalendar = businessCalendar;
+    }
+    
+    public SchedulerMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+    
+    public void setMetricsListener(SchedulerMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+    
+    public EntrySource getEntrySource() {
+        return entrySource == null ? null : entrySource.getSource();
+    }
+    
+    /*
+        getEntrySourceCache returns the cache the views load through, for
+            callers that need to invalidate it after the source changes.
+    */
+    public EntrySourceCache getEntrySourceCache() {
+        return entrySource;
+    }
+
+    /*
+        setEntrySource makes the views load entries from the source one window
+            at a time instead of from the entries list. Passing null goes back
+            to using the entries list. The cache has to hold at least 3 ranges:
+            the window being shown and the two neighbours it prefetches.
+    */
+    public void setEntrySource(EntrySource source){
+        setEntrySource(source, DEFAULT_CACHED_RANGES);
+    }
+
+    public void setEntrySource(EntrySource source, int cachedRanges){
+        if (entrySource != null){
+            entrySource.shutdown();
+        }
+        entrySource = (source == null ? null : new EntrySourceCache(source, cachedRanges));
+    }
     //</editor-fold>
     
     /*
         sortEntries ensures entries are sorted and the earliest entries display first
     */
     public void sortEntries(){
-        Collections.sort(entries);
+        if (metricsListener == null){
+            Collections.sort(entries);
+        }
+        else{
+            Object token = metricsListener.sortStarted(entries.size());
+            long started = System.nanoTime();
+            Collections.sort(entries);
+            metricsListener.entriesSorted(token, entries.size(), System.nanoTime() - started);
+        }
+        entriesSorted = true;
     }
     
     public void showOnStage(){
@@ -163,6 +465,9 @@ public class Scheduler {
     }
     
     private void generateContent(Stage stage){
+        final Object contentToken = (metricsListener == null ? null : metricsListener.contentStarted());
+        final long generateStarted = System.nanoTime();
+        viewRequested = generateStarted;
         final int BORDERS = 5;
         final double FONT_SIZE_LARGE = Font.getDefault().getSize() * 2;
         final double FONT_SIZE = Font.getDefault().getSize() * 1.3;
@@ -214,7 +519,25 @@ public class Scheduler {
             });
             //</editor-fold>
 
-            root.setTop(menu);                  //Add the Menu to the root
+            /*
+                Search field next to the Menu. Results are listed down the right
+                    side as the user types, and clicking one jumps to its date.
+            */
+            TextField txtSearch = new TextField();
+            txtSearch.setPromptText(optionalText("txtSearch", "Search"));
+            txtSearch.textProperty().addListener((observable, oldText, newText) -> {
+                if (newText.trim().isEmpty()){
+                    root.setRight(null);
+                }
+                else{
+                    root.setRight(createSearchResults(newText, contentPane));
+                }
+            });
+            
+            BorderPane menuPane = new BorderPane();
+            menuPane.setCenter(menu);
+            menuPane.setRight(txtSearch);
+            root.setTop(menuPane);              //Add the Menu to the root
         }
         /*
             Node for containing the navigation controls and the schedule
@@ -291,6 +614,8 @@ public class Scheduler {
         else{
             scene.setRoot(root);
         }
+        
+        if (metricsListener != null) metricsListener.contentGenerated(contentToken, System.nanoTime() - generateStarted);
     }
     
     private void formatCalendar(GridPane calendarGrid){
@@ -341,6 +666,16 @@ public class Scheduler {
     }
     
     private void createWeeklyCalendar(BorderPane contentPane){
+        createWeeklyCalendar(contentPane, takeViewRequested(), false);
+    }
+    
+    /*
+        A calendar rebuilt once its entries have loaded keeps the time the view
+            was first requested, so the time to complete includes the wait for
+            the EntrySource, and the first paint of the loading calendar stands.
+    */
+    private void createWeeklyCalendar(BorderPane contentPane, long renderStarted, boolean reloaded){
+        final RenderStats stats = startRender();
         boolean bundleExists = bundle != null;      //Check if there's a bundle being used
         
         /*
@@ -351,18 +686,10 @@ public class Scheduler {
         
         /*
             Using startDateTime, we need to find the Sunday beginning that week.
-            If the day of the week in startDateTime is already Sunday, just use that.
-            Otherwise, it needs to get the date for last sunday. This is done by
-                calling LocalDate.with(DayOfWeek.SUNDAY), which moves to the next 
-                Sunday, and then backing up a week to the right sunday with minusDays.
+                CalendarLayout works that out, so the exporter uses the same rule.
         */
-        LocalDate currentDay;
-        if (!startDateTime.getDayOfWeek().equals(DayOfWeek.SUNDAY)){
-            currentDay = startDateTime.with(DayOfWeek.SUNDAY).minusDays(7).toLocalDate();  
-        }
-        else{
-            currentDay = startDateTime.toLocalDate();  
-        }
+        CalendarLayout layout = CalendarLayout.of(ChronoUnit.WEEKS, startDateTime.toLocalDate());
+        LocalDate currentDay = layout.getFirstDate();
         
         /*
             Time to set the labels to their correct text and give the buttons event handlers. 
@@ -415,32 +742,40 @@ public class Scheduler {
                 child, and appointments are added to the FlowPane.
         */
         
-        final int DAYS_IN_WEEK = 7;
+        final int DAYS_IN_WEEK = CalendarLayout.DAYS_IN_WEEK;
         int currentDayInWeek;
         
+        /*
+            Get the entries for the week. If they're coming from an EntrySource and
+                haven't loaded yet, each day shows a loading label until they arrive.
+        */
+        final LocalDate firstDayInWeek = layout.getFirstDate();
+        final LocalDate lastDayInWeek = layout.getLastDate();
+        List<ScheduleInfo> weeksEntries = entriesBetween(firstDayInWeek, lastDayInWeek);
+        List<Label> loadingLabels = new ArrayList<>();
+        Map<LocalDate, FlowPane> dayCells = new HashMap<>();
+        
         for (currentDayInWeek = 0; currentDayInWeek < DAYS_IN_WEEK; currentDayInWeek++){
             //Make and style a scrollpane
             ScrollPane day = new ScrollPane();              
-            day.setStyle("-fx-background: white;");
+            day.setStyle(isWorkingDay(currentDay) ? "-fx-background: white;" : NON_WORKING_DAY_STYLE);
             day.prefHeightProperty().bind(calendarGrid.heightProperty());
             
             //Make and style a FlowPane
             FlowPane daysAppointments = new FlowPane();
             daysAppointments.setPrefWrapLength(0);
+            stats.nodesCreated += 2;
             
             /*
-                For each entry, check if the entry is for the current day.
+                The entries are added to the day once the whole week has been laid out
             */
-            if (entries != null){
-                for (ScheduleInfo entry : entries){
-                    if (entry.getStartDate().isEqual(currentDay)){
-                        //Create a label to display the appointment in a scrollpane
-                        Label lblAppointment = new Label(entry.toString());
-                        lblAppointment.setStyle("-fx-border-color: black;");
-                        daysAppointments.getChildren().add(lblAppointment);
-                    }
-                }
+            if (weeksEntries == null && entrySource != null){
+                Label lblLoading = new Label(optionalText("lblLoading", "Loading..."));
+                loadingLabels.add(lblLoading);
+                daysAppointments.getChildren().add(lblLoading);
+                stats.nodesCreated++;
             }
+            dayCells.put(currentDay, daysAppointments);
             
             day.setContent(daysAppointments);
             currentDay = currentDay.plusDays(1);
@@ -448,9 +783,31 @@ public class Scheduler {
         }
         
         contentPane.setCenter(calendarGrid);
+        populateDays(calendarGrid, dayCells, weeksEntries, firstDayInWeek, lastDayInWeek, renderStarted, reloaded, stats);
+        
+        if (entrySource != null){
+            /*
+                Load the neighbouring weeks so the back and next buttons don't have
+                    to wait. They're requested first so the week being shown is
+                    the most recently used range and the last one to be evicted.
+            */
+            entrySource.request(layout.previous().getFirstDate(), layout.previous().getLastDate());
+            entrySource.request(layout.next().getFirstDate(), layout.next().getLastDate());
+            if (weeksEntries == null){
+                awaitEntries(firstDayInWeek, lastDayInWeek, loadingLabels, () -> {
+                    //Only rebuild if the user is still looking at this week
+                    if (calendarGrid.getScene() != null) createWeeklyCalendar(contentPane, renderStarted, true);
+                });
+            }
+        }
     }
     
     private void createMonthlyCalendar(BorderPane contentPane){
+        createMonthlyCalendar(contentPane, takeViewRequested(), false);
+    }
+    
+    private void createMonthlyCalendar(BorderPane contentPane, long renderStarted, boolean reloaded){
+        final RenderStats stats = startRender();
         boolean bundleExists = bundle != null;      //Check if there's a bundle being used
         
         /*
@@ -460,37 +817,34 @@ public class Scheduler {
         formatCalendar(calendarGrid);
         
         /*
-            First, find out the first day of the month. The month isn't likely to
-                start on Sunday, so the part of the week before the first day of 
-                the month should be greyed out.
+            First, find out where the month falls in the grid. The month isn't likely
+                to start on Sunday or end on Saturday, so the parts of the first and
+                last weeks outside of the month should be greyed out. CalendarLayout
+                works that out, so the exporter uses the same rules.
         */
-        LocalDate firstDayOfMonth = startDateTime.toLocalDate().withDayOfMonth(1);
+        CalendarLayout layout = CalendarLayout.of(ChronoUnit.MONTHS, startDateTime.toLocalDate());
+        final LocalDate firstDayOfMonth = layout.getFirstDate();
+        final LocalDate lastDayOfMonth = layout.getLastDate();
         
-        /*
-            It's also necessary to know the number of days in the month. The month
-                isn't likely to end on Saturday, so the part of the week after the
-                last day of the month should also be greyed out.
-        */
-        final int daysInMonth = firstDayOfMonth.getMonth().length(firstDayOfMonth.isLeapYear());
-        System.out.println(daysInMonth);
         /*
             The firstDayInMonth  and lastDayInMonth variables are used in the for loop 
                 to determine when to stop/start greying out cells. 
-            
-            Sometimes the first day is in the second week of the month 
-                (somehow - see April 2018), so in those cases a week is 
-                subtracted from the first day because there's no sense in wasting 
-                space with an entire grey week.
         */
-        int firstDayInMonth = firstDayOfMonth.getDayOfWeek().getValue();
-        if (firstDayInMonth >= 7) firstDayInMonth -= 7;    //If the first day of the month is somehow in the second week (like April 2018), move the first day back a week.
-        int lastDayInMonth = firstDayInMonth + daysInMonth;
+        int firstDayInMonth = layout.getLeadingCells();
+        int lastDayInMonth = firstDayInMonth + layout.getDayCount();
         
         /*
             endIndex variable will determine how many days are displayed - either 5 weeks or 6
         */
-        //int endIndex = (firstDayInMonth + daysInMonth) <= 35 ? 35 : 42;
-        double endIndex = Math.ceil((firstDayInMonth + daysInMonth) / 7.0) * 7;
+        int endIndex = layout.getCellCount();
+        
+        /*
+            Get the entries for the month. If they're coming from an EntrySource and
+                haven't loaded yet, each day shows a loading label until they arrive.
+        */
+        List<ScheduleInfo> monthsEntries = entriesBetween(firstDayOfMonth, lastDayOfMonth);
+        List<Label> loadingLabels = new ArrayList<>();
+        Map<LocalDate, FlowPane> dayCells = new HashMap<>();
         
         /*
             Time to set the labels to their correct text and give the buttons event handlers. 
@@ -545,28 +899,27 @@ public class Scheduler {
         for (int currentDayInCalendar = 0, currentDayInWeek = 0, currentDayInMonth = 1; currentDayInCalendar < endIndex; currentDayInCalendar++, currentDayInWeek++){
             //Make and style a scrollpane
             ScrollPane day = new ScrollPane();
-            day.prefHeightProperty().bind(calendarGrid.heightProperty().divide(endIndex == 35 ? 5 : 6));
+            day.prefHeightProperty().bind(calendarGrid.heightProperty().divide(layout.getRowCount()));
             
             //Make and style a FlowPane
             FlowPane daysAppointments = new FlowPane();
             daysAppointments.setPrefWrapLength(1);
+            stats.nodesCreated += 2;
             
             if (currentDayInCalendar >= firstDayInMonth && currentDayInCalendar < lastDayInMonth){
                 Label lblDay = new Label("\t\t\t  " + String.valueOf(currentDayInMonth));
                 daysAppointments.getChildren().add(lblDay);
-                if (entries != null){
-                    for (ScheduleInfo entry : entries){
-                        if (entry.getStartDate().isEqual(LocalDate.of(startDateTime.getYear(), 
-                                startDateTime.getMonth(), 
-                                startDateTime.withDayOfMonth(currentDayInMonth).getDayOfMonth()))){
-                            //Create a label to display the appointment in a scrollpane
-                            Label lblAppointment = new Label(entry.toString());
-                            lblAppointment.setStyle("-fx-border-color: black;");
-                            daysAppointments.getChildren().add(lblAppointment);
-                        }
-                    }
+                stats.nodesCreated++;
+                if (monthsEntries == null && entrySource != null){
+                    Label lblLoading = new Label(optionalText("lblLoading", "Loading..."));
+                    loadingLabels.add(lblLoading);
+                    daysAppointments.getChildren().add(lblLoading);
+                    stats.nodesCreated++;
+                }
+                LocalDate currentDate = firstDayOfMonth.plusDays(currentDayInMonth - 1);
+                if (!isWorkingDay(currentDate)) day.setStyle(NON_WORKING_DAY_STYLE);
+                dayCells.put(currentDate, daysAppointments);
                 ++currentDayInMonth;
-            }
                 //ldt = ldt.plusDays(1);
                 day.setContent(daysAppointments);
             }
@@ -578,5 +931,325 @@ public class Scheduler {
             calendarGrid.add(day, currentDayInWeek, (int)(currentDayInCalendar / 7) + 1);
         }
         contentPane.setCenter(calendarGrid);
+        populateDays(calendarGrid, dayCells, monthsEntries, firstDayOfMonth, lastDayOfMonth, renderStarted, reloaded, stats);
+        
+        if (entrySource != null){
+            /*
+                Load the neighbouring months so the back and next buttons don't have
+                    to wait. They're requested first so the month being shown is
+                    the most recently used range and the last one to be evicted.
+            */
+            entrySource.request(layout.previous().getFirstDate(), layout.previous().getLastDate());
+            entrySource.request(layout.next().getFirstDate(), layout.next().getLastDate());
+            if (monthsEntries == null){
+                awaitEntries(firstDayOfMonth, lastDayOfMonth, loadingLabels, () -> {
+                    //Only rebuild if the user is still looking at this month
+                    if (calendarGrid.getScene() != null) createMonthlyCalendar(contentPane, renderStarted, true);
+                });
+            }
+        }
+    }
+    
+    /*
+        populateDays adds the entries to the days of a calendar that has just been
+            laid out. The entries are split into days in a single pass, instead of
+            every day looking through every entry.
+    
+        In progressive mode the split happens on a background thread and the days
+            are filled in priority order: today first if it's showing, otherwise
+            the start date, then outwards from there.
+    */
+    private void populateDays(GridPane calendarGrid, Map<LocalDate, FlowPane> dayCells, List<ScheduleInfo> windowEntries,
+            LocalDate first, LocalDate last, long renderStarted, boolean reloaded, RenderStats stats){
+        stopWaitingToShow();
+        currentGrid = calendarGrid;
+        currentFilled = false;
+        completeNanos = -1;
+        if (!reloaded) firstPaintNanos = -1;
+        if (progressive && firstPaintNanos < 0){
+            whenShowing(calendarGrid, () -> afterNextPulse(calendarGrid, () -> {
+                firstPaintNanos = System.nanoTime() - renderStarted;
+                if (currentFilled) completeNanos = firstPaintNanos;
+            }));
+        }
+        if (windowEntries == null) return;      //Still waiting on the EntrySource
+        
+        if (!progressive || windowEntries != entries){
+            Map<LocalDate, List<ScheduleInfo>> days = bucketEntries(windowEntries, first, last);
+            stats.entriesScanned = windowEntries.size();
+            for (Map.Entry<LocalDate, FlowPane> day : dayCells.entrySet()){
+                fillDay(day.getValue(), days.get(day.getKey()), stats);
+            }
+            renderCompleted(stats);
+            fillCompleted(calendarGrid, renderStarted);
+            return;
+        }
+        
+        LocalDate today = LocalDate.now();
+        LocalDate shown = startDateTime.toLocalDate();
+        final LocalDate anchor = !today.isBefore(first) && !today.isAfter(last) ? today
+                : !shown.isBefore(first) && !shown.isAfter(last) ? shown : first;
+        List<LocalDate> order = new ArrayList<>(dayCells.keySet());
+        order.sort((a, b) -> Long.compare(Math.abs(ChronoUnit.DAYS.between(anchor, a)), Math.abs(ChronoUnit.DAYS.between(anchor, b))));
+        
+        List<ScheduleInfo> snapshot = new ArrayList<>(entries);     //The loader mustn't see later changes to the list
+        stats.entriesScanned = snapshot.size();
+        Thread loader = new Thread(() -> {
+            Map<LocalDate, List<ScheduleInfo>> days = bucketEntries(snapshot, first, last);
+            Platform.runLater(() -> fillInOrder(calendarGrid, dayCells, days, order, 0, renderStarted, stats));
+        }, "Scheduler progressive loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+    
+    /*
+        fillInOrder fills days until it has used up its time budget, then hands the
+            rest back to the JavaFX thread so the calendar can repaint in between.
+    */
+    private void fillInOrder(GridPane calendarGrid, Map<LocalDate, FlowPane> dayCells, Map<LocalDate, List<ScheduleInfo>> days,
+            List<LocalDate> order, int next, long renderStarted, RenderStats stats){
+        if (calendarGrid.getScene() == null) return;       //The calendar has been replaced, so stop filling it
+        
+        long budgetEnds = System.nanoTime() + FILL_BUDGET_NANOS;
+        while (next < order.size() && System.nanoTime() < budgetEnds){
+            LocalDate date = order.get(next++);
+            fillDay(dayCells.get(date), days.get(date), stats);
+        }
+        
+        if (next < order.size()){
+            final int resumeAt = next;
+            Platform.runLater(() -> fillInOrder(calendarGrid, dayCells, days, order, resumeAt, renderStarted, stats));
+        }
+        else{
+            renderCompleted(stats);
+            fillCompleted(calendarGrid, renderStarted);
+        }
+    }
+    
+    /*
+        fillCompleted times the pulse that draws the last of the entries. If the
+            calendar hasn't been drawn yet, its first paint is also its complete.
+    */
+    private void fillCompleted(GridPane calendarGrid, long renderStarted){
+        currentFilled = true;
+        if (progressive && firstPaintNanos >= 0 && isShowing(calendarGrid)){
+            afterNextPulse(calendarGrid, () -> completeNanos = System.nanoTime() - renderStarted);
+        }
+    }
+    
+    private RenderStats startRender(){
+        RenderStats stats = new RenderStats();
+        if (metricsListener != null) stats.token = metricsListener.renderStarted(timeSpan);
+        return stats;
+    }
+    
+    private void renderCompleted(RenderStats stats){
+        if (metricsListener != null){
+            metricsListener.renderCompleted(stats.token, timeSpan, System.nanoTime() - stats.started, stats.entriesScanned, stats.entriesDisplayed, stats.nodesCreated);
+        }
+    }
+    
+    /*
+        takeViewRequested returns when generateContent asked for the calendar
+            being built. Calendars built on their own, like the next month or a
+            search result, start timing when they're created.
+    */
+    private long takeViewRequested(){
+        long requested = (viewRequested < 0 ? System.nanoTime() : viewRequested);
+        viewRequested = -1;
+        return requested;
+    }
+    
+    /*
+        whenShowing runs an action once the calendar is on a showing window. It
+            follows the grid's scene, then the scene's window, then whether the
+            window is showing, with a listener on whichever comes next instead
+            of checking every pulse. Only one wait is kept at a time, and it's
+            dropped if another calendar replaces this one.
+    */
+    private void whenShowing(GridPane calendarGrid, Runnable action){
+        stopWaitingToShow();
+        if (calendarGrid != currentGrid) return;
+        
+        Scene shownIn = calendarGrid.getScene();
+        Window window = (shownIn == null ? null : shownIn.getWindow());
+        ObservableValue<?> next;
+        if (shownIn == null) next = calendarGrid.sceneProperty();
+        else if (window == null) next = shownIn.windowProperty();
+        else if (!window.isShowing()) next = window.showingProperty();
+        else{
+            action.run();
+            return;
+        }
+        
+        ChangeListener<Object> listener = (observable, oldValue, newValue) -> whenShowing(calendarGrid, action);
+        next.addListener(listener);
+        showingWait = () -> next.removeListener(listener);
+    }
+    
+    private void stopWaitingToShow(){
+        if (showingWait != null){
+            showingWait.run();
+            showingWait = null;
+        }
+    }
+    
+    /*
+        afterNextPulse runs an action once the next pulse has been drawn. The
+            AnimationTimer stops in its first frame, and the action is queued
+            behind that pulse. It's skipped if the calendar was replaced or its
+            window hidden in the meantime.
+    */
+    private void afterNextPulse(GridPane calendarGrid, Runnable action){
+        new AnimationTimer(){
+            @Override
+            public void handle(long now){
+                stop();
+                Platform.runLater(() -> {
+                    if (calendarGrid == currentGrid && isShowing(calendarGrid)) action.run();
+                });
+            }
+        }.start();
+    }
+    
+    private static boolean isShowing(Node node){
+        Scene shownIn = node.getScene();
+        return shownIn != null && shownIn.getWindow() != null && shownIn.getWindow().isShowing();
+    }
+    
+    /*
+        bucketEntries splits the entries between two dates into days, each sorted
+            with the earliest entries first.
+    */
+    private static Map<LocalDate, List<ScheduleInfo>> bucketEntries(List<ScheduleInfo> windowEntries, LocalDate first, LocalDate last){
+        Map<LocalDate, List<ScheduleInfo>> days = new HashMap<>();
+        for (ScheduleInfo entry : windowEntries){
+            LocalDate date = entry.getStartDate();
+            if (date.isBefore(first) || date.isAfter(last)) continue;
+            days.computeIfAbsent(date, key -> new ArrayList<>()).add(entry);
+        }
+        for (List<ScheduleInfo> day : days.values()){
+            Collections.sort(day);
+        }
+        return days;
+    }
+    
+    private void fillDay(FlowPane daysAppointments, List<ScheduleInfo> daysEntries, RenderStats stats){
+        if (daysEntries == null) return;
+        for (ScheduleInfo entry : daysEntries){
+            //Create a label to display the appointment in a scrollpane
+            Label lblAppointment = new Label(entry.toString());
+            lblAppointment.setStyle("-fx-border-color: black;");
+            daysAppointments.getChildren().add(lblAppointment);
+        }
+        stats.entriesDisplayed += daysEntries.size();
+        stats.nodesCreated += daysEntries.size();
+    }
+    
+    /*
+        RenderStats counts the work done building one calendar, for the metrics listener.
+            The render time starts when the calendar is built, not when it was
+            requested, so it doesn't include waiting for an EntrySource.
+    */
+    private static class RenderStats {
+        final long started = System.nanoTime();
+        Object token = null;        //From the metrics listener's renderStarted
+        int entriesScanned = 0;
+        int entriesDisplayed = 0;
+        int nodesCreated = 0;
+    }
+    
+    /*
+        createSearchResults lists the entries matching a query, grouped under
+            their dates. Each result is a link that moves the calendar to it.
+            When there are too many, the ones nearest the date being shown are
+            listed, followed by a note that there are more.
+    */
+    private Node createSearchResults(String query, BorderPane contentPane){
+        final int BORDERS = 5;
+        
+        VBox results = new VBox(BORDERS);
+        results.setPadding(new Insets(BORDERS));
+        
+        //The index only covers the entries list, which is ignored while an EntrySource is set
+        if (entrySource != null){
+            results.getChildren().add(new Label(optionalText("lblSearchUnavailable", "Search isn't available for loaded entries")));
+            return results;
+        }
+        
+        //Ask for one extra match to find out whether the list has been cut short
+        List<ScheduleInfo> nearest = getSearchIndex().searchNearest(query, startDateTime.toLocalDate(), MAX_SEARCH_RESULTS + 1);
+        boolean moreResults = nearest.size() > MAX_SEARCH_RESULTS;
+        SortedMap<LocalDate, List<ScheduleInfo>> matches = new TreeMap<>();
+        for (ScheduleInfo entry : nearest.subList(0, Math.min(nearest.size(), MAX_SEARCH_RESULTS))){
+            matches.computeIfAbsent(entry.getStartDate(), key -> new ArrayList<>()).add(entry);
+        }
+        
+        for (Map.Entry<LocalDate, List<ScheduleInfo>> date : matches.entrySet()){
+            Label lblDate = new Label(date.getKey().toString());
+            lblDate.setFont(Font.font(Font.getDefault().getFamily(), FontWeight.BOLD, Font.getDefault().getSize()));
+            results.getChildren().add(lblDate);
+            
+            for (ScheduleInfo entry : date.getValue()){
+                Hyperlink lnkEntry = new Hyperlink(entry.toString());
+                lnkEntry.setOnAction(e -> {
+                    startDateTime = entry.getStartDate().atTime(entry.getStartTime());
+                    switch(timeSpan){
+                        case WEEKS: createWeeklyCalendar(contentPane); break;
+                        case MONTHS: createMonthlyCalendar(contentPane); break;
+                    }
+                });
+                results.getChildren().add(lnkEntry);
+            }
+        }
+        if (matches.isEmpty()){
+            results.getChildren().add(new Label(optionalText("lblNoResults", "No matching entries")));
+        }
+        if (moreResults){
+            results.getChildren().add(new Label(optionalText("lblMoreResults", "More results...")));
+        }
+        
+        ScrollPane resultsPane = new ScrollPane(results);
+        resultsPane.setFitToWidth(true);
+        return resultsPane;
+    }
+    
+    private boolean isWorkingDay(LocalDate date){
+        return businessCalendar == null || businessCalendar.isWorkingDay(date);
+    }
+    
+    /*
+        entriesBetween returns the entries to display between two dates. Without an
+            EntrySource this is the entries list. With one, it's the cached entries
+            for the window, or null if the window hasn't finished loading.
+    */
+    private List<ScheduleInfo> entriesBetween(LocalDate first, LocalDate last){
+        if (entrySource == null) return entries;
+        return entrySource.getIfLoaded(first, last);
+    }
+    
+    /*
+        awaitEntries requests a window from the EntrySource and runs refresh on the
+            JavaFX thread once it has loaded. If the load fails, the loading labels
+            are changed to say so instead.
+    */
+    private void awaitEntries(LocalDate first, LocalDate last, List<Label> loadingLabels, Runnable refresh){
+        entrySource.request(first, last).whenComplete((loaded, ex) -> Platform.runLater(() -> {
+            if (ex == null){
+                refresh.run();
+            }
+            else{
+                loadingLabels.forEach(label -> label.setText(optionalText("lblLoadFailed", "Unable to load entries")));
+            }
+        }));
+    }
+    
+    /*
+        optionalText looks up text for keys added after the original bundle keys.
+            Bundles written for earlier versions won't have them, so the English
+            text is used when the key is missing.
+    */
+    private String optionalText(String key, String fallback){
+        return (bundle != null && bundle.containsKey(key)) ? bundle.getString(key) : fallback;
     }
 }
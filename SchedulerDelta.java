@@ -0,0 +1,280 @@
+/**
+ * @author Michael Girard
+ */
+package com.github.michael_girard.scheduler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+public class SchedulerDelta {
+    /*
+        Operation codes used by the compact encoding. Each operation is
+        written as its code followed by one entry (or two for a change).
+    */
+    private static final byte OP_ADD = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_CHANGE = 3;
+
+    private final List<ScheduleInfo> added = new ArrayList<>();
+    private final List<ScheduleInfo> removed = new ArrayList<>();
+    private final List<ScheduleInfo> changedFrom = new ArrayList<>();
+    private final List<ScheduleInfo> changedTo = new ArrayList<>();
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    //Create an empty delta
+    public SchedulerDelta(){
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Getters">
+    public List<ScheduleInfo> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    public List<ScheduleInfo> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    /*
+        getChangedFrom and getChangedTo are parallel lists: the entry at
+        index i of getChangedFrom was replaced by the entry at index i
+        of getChangedTo.
+    */
+    public List<ScheduleInfo> getChangedFrom() {
+        return Collections.unmodifiableList(changedFrom);
+    }
+
+    public List<ScheduleInfo> getChangedTo() {
+        return Collections.unmodifiableList(changedTo);
+    }
+
+    public boolean isEmpty(){
+        return added.isEmpty() && removed.isEmpty() && changedFrom.isEmpty();
+    }
+
+    public int size(){
+        return added.size() + removed.size() + changedFrom.size();
+    }
+    //</editor-fold>
+
+    /*
+        between computes the delta that turns the oldState scheduler into
+        the newState scheduler. A scheduler whose entries aren't known to be
+        in order is compared using a sorted copy, leaving its list untouched.
+    */
+    public static SchedulerDelta between(Scheduler oldState, Scheduler newState){
+        return between(oldState.sortedEntries(), newState.sortedEntries());
+    }
+
+    /*
+        between computes the delta in a single merge pass over two lists
+        that are already sorted by compareTo.
+
+        Entries with the same start date and time are compared as a group.
+        Entries found in both groups are unchanged, the remaining entries
+        are paired up as changes, and whatever is left over in either group
+        is an addition or removal.
+    */
+    public static SchedulerDelta between(List<ScheduleInfo> oldEntries, List<ScheduleInfo> newEntries){
+        SchedulerDelta delta = new SchedulerDelta();
+        int oldIndex = 0;
+        int newIndex = 0;
+
+        while (oldIndex < oldEntries.size() && newIndex < newEntries.size()){
+            ScheduleInfo oldEntry = oldEntries.get(oldIndex);
+            ScheduleInfo newEntry = newEntries.get(newIndex);
+            int comparison = oldEntry.compareTo(newEntry);
+
+            if (comparison < 0){
+                delta.removed.add(oldEntry);
+                oldIndex++;
+            }
+            else if (comparison > 0){
+                delta.added.add(newEntry);
+                newIndex++;
+            }
+            else{
+                //Find the end of the group of entries sharing this start on both sides
+                int oldEnd = oldIndex + 1;
+                while (oldEnd < oldEntries.size() && oldEntries.get(oldEnd).compareTo(oldEntry) == 0) oldEnd++;
+                int newEnd = newIndex + 1;
+                while (newEnd < newEntries.size() && newEntries.get(newEnd).compareTo(newEntry) == 0) newEnd++;
+
+                delta.mergeGroup(oldEntries.subList(oldIndex, oldEnd), newEntries.subList(newIndex, newEnd));
+                oldIndex = oldEnd;
+                newIndex = newEnd;
+            }
+        }
+
+        //Anything left over on either side was removed or added
+        while (oldIndex < oldEntries.size()) delta.removed.add(oldEntries.get(oldIndex++));
+        while (newIndex < newEntries.size()) delta.added.add(newEntries.get(newIndex++));
+
+        return delta;
+    }
+
+    /*
+        mergeGroup compares entries that share a start date and time. Groups
+        are almost always a single entry, so the quadratic match is cheap.
+    */
+    private void mergeGroup(List<ScheduleInfo> oldGroup, List<ScheduleInfo> newGroup){
+        List<ScheduleInfo> unmatchedOld = new ArrayList<>(oldGroup);
+        List<ScheduleInfo> unmatchedNew = new ArrayList<>();
+
+        for (ScheduleInfo newEntry : newGroup){
+            int match = indexOfSameContent(unmatchedOld, newEntry);
+            if (match >= 0){
+                unmatchedOld.remove(match);
+            }
+            else{
+                unmatchedNew.add(newEntry);
+            }
+        }
+
+        int pairs = Math.min(unmatchedOld.size(), unmatchedNew.size());
+        for (int i = 0; i < pairs; i++){
+            changedFrom.add(unmatchedOld.get(i));
+            changedTo.add(unmatchedNew.get(i));
+        }
+        removed.addAll(unmatchedOld.subList(pairs, unmatchedOld.size()));
+        added.addAll(unmatchedNew.subList(pairs, unmatchedNew.size()));
+    }
+
+    /*
+        sameContent decides whether two entries describe the same appointment.
+        Entries on different nodes are different objects, so this compares
+        their values rather than their identity.
+    */
+    static boolean sameContent(ScheduleInfo first, ScheduleInfo second){
+        if (first == second) return true;
+        if (!Objects.equals(first.getStartDate(), second.getStartDate())) return false;
+        if (!Objects.equals(first.getStartTime(), second.getStartTime())) return false;
+        if (!Objects.equals(first.getEndTime(), second.getEndTime())) return false;
+        return titleOf(first).equals(titleOf(second)) && descriptionOf(first).equals(descriptionOf(second));
+    }
+
+    static int indexOfSameContent(List<ScheduleInfo> list, ScheduleInfo entry){
+        for (int i = 0; i < list.size(); i++){
+            if (sameContent(list.get(i), entry)) return i;
+        }
+        return -1;
+    }
+
+    static String titleOf(ScheduleInfo entry){
+        if (entry instanceof SchedulerEntry){
+            String title = ((SchedulerEntry) entry).getEntryTitle();
+            return title == null ? "" : title;
+        }
+        return entry.toString();
+    }
+
+    static String descriptionOf(ScheduleInfo entry){
+        if (entry instanceof SchedulerEntry){
+            String description = ((SchedulerEntry) entry).getEntryDescription();
+            return description == null ? "" : description;
+        }
+        return "";
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Encoding">
+    /*
+        encode writes the delta in a compact binary form. Dates are written
+        as epoch days and times as nanoseconds of the day, so an entry costs a
+        few bytes plus its title and description. Text is written as a byte
+        count followed by UTF-8, since writeUTF can't hold more than 64KB.
+
+        Entries that are not SchedulerEntry objects are written using their
+        toString as the title, and decode back into SchedulerEntry objects.
+    */
+    public byte[] encode(){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)){
+            out.writeInt(size());
+            for (ScheduleInfo entry : removed){
+                out.writeByte(OP_REMOVE);
+                writeEntry(out, entry);
+            }
+            for (int i = 0; i < changedFrom.size(); i++){
+                out.writeByte(OP_CHANGE);
+                writeEntry(out, changedFrom.get(i));
+                writeEntry(out, changedTo.get(i));
+            }
+            for (ScheduleInfo entry : added){
+                out.writeByte(OP_ADD);
+                writeEntry(out, entry);
+            }
+        }
+        catch (IOException ex){
+            throw new UncheckedIOException(ex);     //A byte array never fails to write
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SchedulerDelta decode(byte[] encoded){
+        SchedulerDelta delta = new SchedulerDelta();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))){
+            int operations = in.readInt();
+            for (int i = 0; i < operations; i++){
+                byte op = in.readByte();
+                switch (op){
+                    case OP_ADD: delta.added.add(readEntry(in)); break;
+                    case OP_REMOVE: delta.removed.add(readEntry(in)); break;
+                    case OP_CHANGE:
+                        delta.changedFrom.add(readEntry(in));
+                        delta.changedTo.add(readEntry(in));
+                        break;
+                    default: throw new IllegalArgumentException("Invalid operation in encoded delta: " + op);
+                }
+            }
+        }
+        catch (IOException ex){
+            throw new IllegalArgumentException("Encoded delta is truncated or corrupt.", ex);
+        }
+        return delta;
+    }
+
+    private static void writeEntry(DataOutputStream out, ScheduleInfo entry) throws IOException{
+        out.writeLong(entry.getStartDate().toEpochDay());
+        out.writeLong(entry.getStartTime().toNanoOfDay());
+        out.writeLong(entry.getEndTime().toNanoOfDay());
+        writeText(out, titleOf(entry));
+        writeText(out, descriptionOf(entry));
+    }
+
+    private static SchedulerEntry readEntry(DataInputStream in) throws IOException{
+        LocalDate date = LocalDate.ofEpochDay(in.readLong());
+        LocalTime start = LocalTime.ofNanoOfDay(in.readLong());
+        LocalTime end = LocalTime.ofNanoOfDay(in.readLong());
+        String title = readText(in);
+        String description = readText(in);
+        return new SchedulerEntry(date, start, end, title, description);
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException{
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readText(DataInputStream in) throws IOException{
+        int length = in.readInt();
+        if (length < 0 || length > in.available()){
+            throw new IOException("Invalid text length in encoded delta: " + length);
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,66 @@
+/**
+ * @author Michael Girard
+ */
+package com.github.michael_girard.scheduler;
+
+import java.time.temporal.ChronoUnit;
+
+public interface SchedulerMetricsListener {
+    /*
+        Mutation identifies which Scheduler method changed the entries
+    */
+    enum Mutation { ADD, REMOVE, UPDATE, REPLACE_ALL, DELTA }
+
+    /*
+        The started methods are called before a render, content generation or
+            sort begins, and whatever they return is handed back to the matching
+            completed method. Recorders that time the work themselves, like JFR
+            events, can begin in one and end in the other. By default there's
+            no token and the completed methods below are called without it.
+    */
+    default Object renderStarted(ChronoUnit timeSpan){
+        return null;
+    }
+
+    default void renderCompleted(Object token, ChronoUnit timeSpan, long durationNanos, int entriesScanned, int entriesDisplayed, int nodesCreated){
+        renderCompleted(timeSpan, durationNanos, entriesScanned, entriesDisplayed, nodesCreated);
+    }
+
+    default Object contentStarted(){
+        return null;
+    }
+
+    default void contentGenerated(Object token, long durationNanos){
+        contentGenerated(durationNanos);
+    }
+
+    default Object sortStarted(int entryCount){
+        return null;
+    }
+
+    default void entriesSorted(Object token, int entryCount, long durationNanos){
+        entriesSorted(entryCount, durationNanos);
+    }
+
+    /*
+        renderCompleted is called once a week or month calendar has all of its
+            entries in place. entriesScanned is how many entries were looked at
+            to find the ones in view, entriesDisplayed is how many were shown,
+            and nodesCreated counts the JavaFX nodes built for the days.
+    */
+    default void renderCompleted(ChronoUnit timeSpan, long durationNanos, int entriesScanned, int entriesDisplayed, int nodesCreated){
+    }
+
+    /*
+        contentGenerated is called after the menu, controls and calendar have
+            been built and swapped into the scene.
+    */
+    default void contentGenerated(long durationNanos){
+    }
+
+    default void entriesSorted(int entryCount, long durationNanos){
+    }
+
+    default void entriesMutated(Mutation mutation, int entryCount){
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * @author Michael Girard
+ */
+package com.github.michael_girard.scheduler;
+
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SchedulerStatistics implements SchedulerMetricsListener {
+    /*
+        Counters and timing histograms collected from a Scheduler. Everything is
+        updated with LongAdders and atomic arrays, so a statistics object can be
+        read from any thread while the calendar is being used.
+    */
+    private final Histogram renderTimes = new Histogram();
+    private final Histogram contentTimes = new Histogram();
+    private final Histogram sortTimes = new Histogram();
+    private final LongAdder entriesScanned = new LongAdder();
+    private final LongAdder entriesDisplayed = new LongAdder();
+    private final LongAdder nodesCreated = new LongAdder();
+    private final Map<Mutation, LongAdder> mutations = new EnumMap<>(Mutation.class);
+    private volatile long startedNanos = System.nanoTime();
+
+    //<editor-fold defaultstate="collapsed" desc="Constructors">
+    public SchedulerStatistics(){
+        for (Mutation mutation : Mutation.values()){
+            mutations.put(mutation, new LongAdder());
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="SchedulerMetricsListener">
+    @Override
+    public void renderCompleted(ChronoUnit timeSpan, long durationNanos, int scanned, int displayed, int nodes){
+        renderTimes.record(durationNanos);
+        entriesScanned.add(scanned);
+        entriesDisplayed.add(displayed);
+        nodesCreated.add(nodes);
+    }
+
+    @Override
+    public void contentGenerated(long durationNanos){
+        contentTimes.record(durationNanos);
+    }
+
+    @Override
+    public void entriesSorted(int entryCount, long durationNanos){
+        sortTimes.record(durationNanos);
+    }
+
+    @Override
+    public void entriesMutated(Mutation mutation, int entryCount){
+        mutations.get(mutation).add(entryCount);
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="Getters">
+    public Histogram getRenderTimes() {
+        return renderTimes;
+    }
+
+    public Histogram getContentTimes() {
+        return contentTimes;
+    }
+
+    public Histogram getSortTimes() {
+        return sortTimes;
+    }
+
+    public long getEntriesScanned() {
+        return entriesScanned.sum();
+    }
+
+    public long getEntriesDisplayed() {
+        return entriesDisplayed.sum();
+    }
+
+    public long getNodesCreated() {
+        return nodesCreated.sum();
+    }
+
+    public long getMutations(Mutation mutation) {
+        return mutations.get(mutation).sum();
+    }
+
+    /*
+        getMutationRate is the number of entries changed per second since the
+            statistics were created or last reset.
+    */
+    public double getMutationRate(){
+        long total = 0;
+        for (LongAdder count : mutations.values()){
+            total += count.sum();
+        }
+        double seconds = (System.nanoTime() - startedNanos) / 1e9;
+        return seconds <= 0 ? 0 : total / seconds;
+    }
+    //</editor-fold>
+
+    public void reset(){
+        renderTimes.reset();
+        contentTimes.reset();
+        sortTimes.reset();
+        entriesScanned.reset();
+        entriesDisplayed.reset();
+        nodesCreated.reset();
+        mutations.values().forEach(LongAdder::reset);
+        startedNanos = System.nanoTime();
+    }
+
+    @Override
+    public String toString(){
+        return "Renders: " + renderTimes +
+                "\nContent: " + contentTimes +
+                "\nSorts: " + sortTimes +
+                "\nEntries scanned: " + getEntriesScanned() +
+                "\nEntries displayed: " + getEntriesDisplayed() +
+                "\nNodes created: " + getNodesCreated() +
+                "\nMutations: " + mutations +
+                "\nMutation rate: " + String.format("%.1f", getMutationRate()) + "/s";
+    }
+
+    /*
+        Histogram groups durations into power of two buckets of nanoseconds.
+            That's plenty of resolution to tell a 2ms render from a 200ms one,
+            and recording a value is just a couple of atomic adds.
+    */
+    public static class Histogram {
+        private static final int BUCKETS = 64;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        public void record(long nanos){
+            long value = Math.max(nanos, 0);
+            int bucket = (value == 0 ? 0 : 63 - Long.numberOfLeadingZeros(value));     //Bucket b holds values from 2^b up to 2^(b+1)
+            buckets.incrementAndGet(bucket);
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMaxNanos() {
+            return max.get();
+        }
+
+        public double getMeanNanos(){
+            long samples = count.sum();
+            return samples == 0 ? 0 : (double) total.sum() / samples;
+        }
+
+        /*
+            getPercentileNanos returns the upper bound of the bucket holding the
+                requested percentile (capped at the maximum), so it's accurate to
+                within a factor of two.
+        */
+        public long getPercentileNanos(double percentile){
+            long samples = count.sum();
+            if (samples == 0) return 0;
+            long wanted = (long) Math.ceil(samples * percentile / 100.0);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++){
+                seen += buckets.get(bucket);
+                if (seen >= wanted){
+                    return Math.min((2L << bucket) - 1, max.get());     //The shift overflows to Long.MAX_VALUE for the top bucket
+                }
+            }
+            return max.get();
+        }
+
+        void reset(){
+            for (int bucket = 0; bucket < BUCKETS; bucket++){
+                buckets.set(bucket, 0);
+            }
+            count.reset();
+            total.reset();
+            max.reset();
+        }
+
+        @Override
+        public String toString(){
+            return String.format("count=%d mean=%.2fms p50<=%.2fms p99<=%.2fms max=%.2fms",
+                    getCount(),
+                    getMeanNanos() / 1e6,
+                    getPercentileNanos(50) / 1e6,
+                    getPercentileNanos(99) / 1e6,
+                    getMaxNanos() / 1e6);
+        }
+    }
+}